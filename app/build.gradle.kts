@@ -33,6 +33,10 @@ android {
     kotlinOptions {
         jvmTarget = "1.8"
     }
+    testOptions {
+        // 本地数据库等依赖Android框架的类在Robolectric下测试
+        unitTests.isIncludeAndroidResources = true
+    }
     
     applicationVariants.all {
         val variant = this
@@ -50,6 +54,9 @@ dependencies {
     implementation(libs.material)
     
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
+    testImplementation(libs.mockwebserver)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
     implementation("com.airbnb.android:lottie:6.4.0")
@@ -3,10 +3,13 @@ package com.example.tastylog
 import android.content.Context
 import android.util.Log
 import com.example.tastylog.config.AppConfig
-import com.example.tastylog.model.FoodItem
+import com.example.tastylog.data.FoodDocumentClient
+import com.example.tastylog.data.FoodDocumentDecoder
+import com.example.tastylog.data.SessionManager
 import io.appwrite.Client
 import io.appwrite.ID
 import io.appwrite.Query
+import io.appwrite.exceptions.AppwriteException
 import io.appwrite.models.Document
 import io.appwrite.models.InputFile
 import io.appwrite.models.Session
@@ -19,9 +22,7 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.cancelChildren
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.withContext
-import java.net.URLEncoder
 
 /**
  * Appwrite 服务封装类
@@ -32,6 +33,24 @@ object Appwrite {
     lateinit var account: Account
     lateinit var databases: Databases
     lateinit var storage: Storage
+    private lateinit var sessionManager: SessionManager
+
+    private const val ENDPOINT = "https://cloud.appwrite.io/v1"
+
+    // 美食列表分页大小，服务端默认只返回25条
+    const val FOOD_PAGE_SIZE = 100
+    // 只取ID时每页可以更大
+    private const val FOOD_ID_PAGE_SIZE = 1000
+    // JWT有效期为15分钟，提前刷新
+    private const val JWT_TTL_MS = 10 * 60 * 1000L
+
+    // 直接请求listDocuments接口读取美食列表
+    private val foodDocumentClient = FoodDocumentClient(ENDPOINT, AppConfig.PROJECT_ID)
+
+    // 直接请求REST接口时用于鉴权的JWT缓存
+    private var cachedJwt: String? = null
+    private var cachedJwtUserId: String? = null
+    private var cachedJwtExpiresAt = 0L
 
     // 使用自定义协程作用域替代GlobalScope
     private val appwriteScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
@@ -49,12 +68,61 @@ object Appwrite {
      */
     fun init(context: Context) {
         client = Client(context)
-            .setEndpoint("https://cloud.appwrite.io/v1")
+            .setEndpoint(ENDPOINT)
             .setProject(AppConfig.PROJECT_ID)
 
         account = Account(client)
         databases = Databases(client)
         storage = Storage(client)
+        sessionManager = SessionManager.getInstance(context)
+
+        // 有缓存的会话时在后台确认会话是否仍然有效
+        if (sessionManager.isLoggedIn) {
+            refreshSessionWithCallback {}
+        }
+    }
+
+    /**
+     * 在后台向服务端确认当前会话，并更新缓存的用户ID
+     * 会话已失效时清除缓存，网络错误时保留缓存
+     * @param onResult 确认完成后的回调，参数为用户ID，未登录时为空字符串
+     */
+    fun refreshSessionWithCallback(onResult: (String) -> Unit) {
+        appwriteScope.launch {
+            val userId = try {
+                val user = account.get()
+                sessionManager.updateUserId(user.id)
+                user.id
+            } catch (e: AppwriteException) {
+                if (e.code == 401) {
+                    Log.d("Appwrite", "会话已失效，清除缓存")
+                    sessionManager.clear()
+                } else {
+                    Log.e("Appwrite", "刷新会话失败: ${e.message}", e)
+                }
+                sessionManager.userId
+            } catch (e: Exception) {
+                Log.e("Appwrite", "刷新会话失败: ${e.message}", e)
+                sessionManager.userId
+            }
+            withContext(Dispatchers.Main) {
+                onResult(userId)
+            }
+        }
+    }
+
+    /**
+     * 获取当前用户ID，优先使用缓存，缓存为空时才请求服务端
+     * 只能在协程中调用
+     */
+    private suspend fun requireUserId(): String {
+        val cached = sessionManager.userId
+        if (cached.isNotEmpty()) {
+            return cached
+        }
+        val user = account.get()
+        sessionManager.updateUserId(user.id)
+        return user.id
     }
 
     //===================================
@@ -77,8 +145,10 @@ object Appwrite {
                 } catch (e: Exception) {
                     // 忽略错误，可能没有现有会话
                 }
+                sessionManager.clear()
 
                 val session = account.createEmailPasswordSession(email, password)
+                sessionManager.saveSession(session.userId, session.id)
                 Log.d("Appwrite", "登录成功，用户ID: ${session.userId}")
 
                 withContext(Dispatchers.Main) {
@@ -109,6 +179,7 @@ object Appwrite {
                     // 忽略删除会话时的错误，可能本来就没有会话
                     Log.d("Appwrite", "没有现有会话需要删除或删除失败")
                 }
+                sessionManager.clear()
 
                 val user = account.create(
                     userId,
@@ -125,6 +196,7 @@ object Appwrite {
                 // 3. 登录
                 try {
                     val session = account.createEmailPasswordSession(email, password)
+                    sessionManager.saveSession(session.userId, session.id)
                     Log.d("Appwrite", "自动登录成功: ${session.userId}")
 
                 // 4. 创建初始食物列表
@@ -280,6 +352,7 @@ object Appwrite {
                 // 3. 登录
                 try {
                     val session = account.createEmailPasswordSession(email, password)
+                    sessionManager.saveSession(session.userId, session.id)
                     Log.d("Appwrite", "自动登录成功: ${session.userId}")
                 } catch (e: Exception) {
                     Log.e("Appwrite", "自动登录失败: ${e.message}", e)
@@ -299,6 +372,7 @@ object Appwrite {
         return withContext(Dispatchers.IO) {
             try {
                 val session = account.createEmailPasswordSession(email, password)
+                sessionManager.saveSession(session.userId, session.id)
                 Log.d("Appwrite", "登录成功: ${session.userId}")
                 session
             } catch (e: Exception) {
@@ -344,62 +418,6 @@ object Appwrite {
         }
     }
 
-    // 获取用户的所有食物项 - 协程版本
-    suspend fun getUserFoodItems(userId: String): List<Document<Map<String, Any>>> {
-        return withContext(Dispatchers.IO) {
-            try {
-                val response = databases.listDocuments(
-                    AppConfig.DATABASE_ID,
-                    AppConfig.FOOD_LIST_COLLECTION_ID,
-                    listOf(
-                        io.appwrite.Query.equal("user_id", userId)
-                    )
-                )
-                response.documents
-            } catch (e: Exception) {
-                Log.e("Appwrite", "获取用户食物列表失败", e)
-                emptyList()
-            }
-        }
-    }
-    
-    // 将 Document 转换为 FoodItem - 辅助方法
-    fun documentToFoodItem(document: Document<Map<String, Any>>): FoodItem {
-        val foodItem = FoodItem()
-        
-        // 设置文档ID (这是关键)
-        foodItem.setDocumentId(document.id)
-        
-        // 设置其他属性
-        foodItem.setId(document.data["food_id"] as? String ?: "")
-        foodItem.setTitle(document.data["title"] as? String ?: "")
-        foodItem.setTime(document.data["time"] as? String ?: "")
-        foodItem.setRating((document.data["rating"] as? Double)?.toFloat() ?: 0f)
-        
-        // 处理价格 - 数据库中是Double类型，转换为String
-        val priceValue = document.data["price"] as? Double
-        foodItem.setPrice(if (priceValue != null) "¥$priceValue" else "")
-        
-        // 处理标签 - 数据库中是单个tag字段，而不是tags列表
-        val tag = document.data["tag"] as? String
-        if (!tag.isNullOrEmpty()) {
-            val tags = ArrayList<String>()
-            tags.add(tag)
-            foodItem.setTags(tags) // 使用setter方法
-        }
-        
-        // 处理图片URL
-        foodItem.setImageUrl(document.data["img_url"] as? String ?: "")
-        
-        return foodItem
-    }
-
-    // 获取并转换食物列表 - 协程版本
-    suspend fun getUserFoodItemsList(userId: String): List<FoodItem> {
-        val documents = getUserFoodItems(userId)
-        return documents.map { documentToFoodItem(it) }
-    }
-
     // 添加更新用户头像的方法 - 协程版本
     suspend fun updateUserAvatar(userId: String, avatarUrl: String): Boolean {
         return withContext(Dispatchers.IO) {
@@ -424,6 +442,7 @@ object Appwrite {
             try {
                 // 获取当前会话用户
                 val currentUser = account.get()
+                sessionManager.updateUserId(currentUser.id)
                 Log.d("Appwrite", "获取到当前用户: ${currentUser.name}, ID: ${currentUser.id}")
                 
                 // 确保用户存在
@@ -495,6 +514,7 @@ object Appwrite {
             try {
                 Log.d("Appwrite", "开始登出")
                 account.deleteSession("current")
+                sessionManager.clear()
                 Log.d("Appwrite", "登出成功")
                 
                 withContext(Dispatchers.Main) {
@@ -514,6 +534,7 @@ object Appwrite {
         return withContext(Dispatchers.IO) {
             try {
                 account.deleteSession("current")
+                sessionManager.clear()
                 true
             } catch (e: Exception) {
                 Log.e("Appwrite", "登出失败: ${e.message}", e)
@@ -525,18 +546,10 @@ object Appwrite {
     fun getDatabaseId() = AppConfig.DATABASE_ID
     fun getUsersCollectionId() = AppConfig.USERS_COLLECTION_ID
 
-    // 添加获取当前用户ID的方法，供Java代码调用
+    // 获取当前用户ID，供Java代码调用
+    // 只读取登录时缓存的会话，不访问网络，未登录时返回空字符串
     fun getCurrentUserId(): String {
-        var userId = ""
-        runBlocking {
-            try {
-                val session = account.get()
-                userId = session.id
-            } catch (e: Exception) {
-                Log.e("Appwrite", "获取当前用户ID失败: ${e.message}", e)
-            }
-        }
-        return userId
+        return sessionManager.userId
     }
 
     // 添加上传文件的回调方法，供Java代码调用
@@ -594,32 +607,71 @@ object Appwrite {
         return "${client.endpoint}/storage/buckets/$bucketId/files/$fileId/view?project=${AppConfig.PROJECT_ID}"
     }
 
-    // 获取用户美食列表时确保返回包含正确的文档ID
+    // 获取用户美食列表，按游标分页拉取，每拉到一页就回调一次，isLastPage为true表示已拉取完毕
+    // 响应体由FoodDocumentDecoder流式解析为FoodItem，不经过SDK的Document和Map
+    // updatedAfter不为空时只拉取$updatedAt不早于该时间的文档（增量同步）
+    // onPage在后台线程依次回调，onError在主线程回调
     fun getUserFoodItemsWithCallback(
         userId: String,
-        onSuccess: (List<Document<Map<String, Any>>>) -> Unit,
+        updatedAfter: String?,
+        onPage: (FoodDocumentDecoder.Page, Boolean) -> Unit,
         onError: (Exception) -> Unit
     ) {
         appwriteScope.launch {
             try {
-                val documents = databases.listDocuments(
-                    AppConfig.DATABASE_ID,
-                    AppConfig.FOOD_LIST_COLLECTION_ID,
-                    listOf(
-                        io.appwrite.Query.equal("user_id", userId)
-                    )
-                )
-                
-                // 添加日志
-                documents.documents.forEach { doc ->
-                    Log.d("Appwrite", "获取到文档: ID=${doc.id}, 标题=${doc.data["title"]}")
+                var cursor: String? = null
+                do {
+                    val page = fetchFoodItemsPage(userId, cursor, updatedAfter)
+                    val isLastPage = page.items.size < FOOD_PAGE_SIZE
+                    cursor = page.lastDocumentId
+
+                    Log.d("Appwrite", "获取到一页美食文档: ${page.items.size}条, 最后一页=$isLastPage")
+
+                    // 直接在IO线程回调，耗时处理不占用主线程
+                    onPage(page, isLastPage)
+                } while (!isLastPage)
+            } catch (e: Exception) {
+                Log.e("Appwrite", "获取美食列表失败: ${e.message}", e)
+                withContext(Dispatchers.Main) {
+                    onError(e)
                 }
-                
+            }
+        }
+    }
+
+    // 获取用户所有美食文档的ID，只返回$id字段，用于找出云端已删除的记录
+    fun getUserFoodItemIdsWithCallback(
+        userId: String,
+        onSuccess: (Set<String>) -> Unit,
+        onError: (Exception) -> Unit
+    ) {
+        appwriteScope.launch {
+            try {
+                val ids = HashSet<String>()
+                var cursor: String? = null
+                do {
+                    val queries = mutableListOf(
+                        Query.equal("user_id", userId),
+                        Query.select(listOf("\$id")),
+                        Query.limit(FOOD_ID_PAGE_SIZE)
+                    )
+                    if (cursor != null) {
+                        queries.add(Query.cursorAfter(cursor))
+                    }
+                    val documents = databases.listDocuments(
+                        AppConfig.DATABASE_ID,
+                        AppConfig.FOOD_LIST_COLLECTION_ID,
+                        queries
+                    ).documents
+                    documents.forEach { ids.add(it.id) }
+                    cursor = documents.lastOrNull()?.id
+                } while (documents.size == FOOD_ID_PAGE_SIZE)
+
                 withContext(Dispatchers.Main) {
-                    onSuccess(documents.documents)
+                    onSuccess(ids)
                 }
             } catch (e: Exception) {
-                Log.e("Appwrite", "获取美食列表失败: ${e.message}", e)
+                Log.e("Appwrite", "获取美食文档ID失败: ${e.message}", e)
                 withContext(Dispatchers.Main) {
                     onError(e)
                 }
@@ -627,9 +679,66 @@ object Appwrite {
         }
     }
 
+    // 直接请求listDocuments接口并流式解析一页美食记录，JWT过期时重新获取后重试一次
+    private suspend fun fetchFoodItemsPage(
+        userId: String,
+        cursor: String?,
+        updatedAfter: String?
+    ): FoodDocumentDecoder.Page {
+        val queries = mutableListOf(
+            Query.equal("user_id", userId),
+            Query.limit(FOOD_PAGE_SIZE)
+        )
+        if (updatedAfter != null) {
+            // 使用大于等于，避免漏掉与水位线同一时刻更新的文档，重复的文档合并时会被覆盖
+            queries.add(Query.greaterThanEqual("\$updatedAt", updatedAfter))
+            queries.add(Query.orderAsc("\$updatedAt"))
+        }
+        if (cursor != null) {
+            queries.add(Query.cursorAfter(cursor))
+        }
+
+        return try {
+            foodDocumentClient.listDocuments(AppConfig.DATABASE_ID, AppConfig.FOOD_LIST_COLLECTION_ID, queries,
+                getJwt(userId))
+        } catch (e: AppwriteException) {
+            if (e.code != 401) {
+                throw e
+            }
+            invalidateJwt()
+            foodDocumentClient.listDocuments(AppConfig.DATABASE_ID, AppConfig.FOOD_LIST_COLLECTION_ID, queries,
+                getJwt(userId))
+        }
+    }
+
+    @Synchronized
+    private fun invalidateJwt() {
+        cachedJwt = null
+    }
+
+    // 获取当前会话的JWT，有效期内复用
+    private suspend fun getJwt(userId: String): String {
+        synchronized(this) {
+            val jwt = cachedJwt
+            if (jwt != null && cachedJwtUserId == userId && System.currentTimeMillis() < cachedJwtExpiresAt) {
+                return jwt
+            }
+        }
+        val jwt = account.createJWT().jwt
+        synchronized(this) {
+            cachedJwt = jwt
+            cachedJwtUserId = userId
+            cachedJwtExpiresAt = System.currentTimeMillis() + JWT_TTL_MS
+        }
+        return jwt
+    }
+
     // 修改创建食物记录的回调方法，添加location参数
+    // 文档ID和food_id由调用方生成，重试时不会重复创建
     fun addFoodItemWithCallback(
         userId: String,
+        documentId: String,
+        foodId: String,
         title: String,
         time: String,
         imgUrl: String,
@@ -644,7 +753,7 @@ object Appwrite {
         appwriteScope.launch {
             try {
                 val data = mapOf(
-                    "food_id" to ID.unique(),
+                    "food_id" to foodId,
                     "user_id" to userId,
                     "title" to title,
                     "time" to time,
@@ -659,7 +768,7 @@ object Appwrite {
                 val document = databases.createDocument(
                     AppConfig.DATABASE_ID,
                     AppConfig.FOOD_LIST_COLLECTION_ID,
-                    ID.unique(),
+                    documentId,
                     data
                 )
                 
@@ -759,7 +868,7 @@ object Appwrite {
         appwriteScope.launch {
             try {
                 // 获取当前用户ID
-                val userId = account.get().id
+                val userId = requireUserId()
                 Log.d("Appwrite", "准备更新用户名，用户ID: $userId")
                 
                 // 先查询用户文档
@@ -813,7 +922,7 @@ object Appwrite {
     fun updateUserAvatar(avatarUrl: String, onSuccess: () -> Unit, onError: (Exception) -> Unit) {
         appwriteScope.launch {
             try {
-                val userId = account.get().id
+                val userId = requireUserId()
                 Log.d("Appwrite", "准备更新用户头像，用户ID: $userId")
                 
                 // 先查询用户文档
@@ -4,9 +4,11 @@ import android.content.Context;
 import android.util.Log;
 
 import com.example.tastylog.config.AppConfig;
+import com.example.tastylog.data.FoodDocumentDecoder;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import io.appwrite.models.Document;
@@ -21,8 +23,8 @@ public class AppwriteWrapper {
     private static final String TAG = "AppwriteWrapper";
     private static AppwriteWrapper instance;
     
-    private AppwriteWrapper() {
-        // 私有构造函数，防止外部实例化
+    protected AppwriteWrapper() {
+        // 只通过getInstance获取，测试时可以继承替换云端请求
     }
     
     /**
@@ -147,20 +149,49 @@ public class AppwriteWrapper {
     }
 
     /**
-     * 获取用户食物列表
+     * 分页获取用户食物列表
+     * 每拉取到一页回调一次onPage，第二个参数为true表示已是最后一页
+     * onPage在后台线程回调，不要在其中直接操作UI
      * @param userId
-     * @param onSuccess
+     * @param updatedAfter 增量同步的水位线，为null时拉取全部
+     * @param onPage
      * @param onError
      */
     public void getUserFoodItems(
         String userId,
-        Consumer<java.util.List<Document<Map<String, Object>>>> onSuccess,
+        String updatedAfter,
+        BiConsumer<FoodDocumentDecoder.Page, Boolean> onPage,
         Consumer<Exception> onError
     ) {
         Appwrite.INSTANCE.getUserFoodItemsWithCallback(
             userId,
-            documents -> {
-                onSuccess.accept(documents);
+            updatedAfter,
+            (page, isLastPage) -> {
+                onPage.accept(page, isLastPage);
+                return null;
+            },
+            error -> {
+                onError.accept(error);
+                return null;
+            }
+        );
+    }
+
+    /**
+     * 获取用户所有食物记录的文档ID
+     * @param userId
+     * @param onSuccess
+     * @param onError
+     */
+    public void getUserFoodItemIds(
+        String userId,
+        Consumer<java.util.Set<String>> onSuccess,
+        Consumer<Exception> onError
+    ) {
+        Appwrite.INSTANCE.getUserFoodItemIdsWithCallback(
+            userId,
+            ids -> {
+                onSuccess.accept(ids);
                 return null;
             },
             error -> {
@@ -205,16 +236,30 @@ public class AppwriteWrapper {
         return Appwrite.INSTANCE.getFilePreviewUrl(bucketId, fileId);
     }
     
-    // 获取当前登录用户ID
+    // 获取当前登录用户ID，读取缓存的会话，不会阻塞
     public String getCurrentUserId() {
         return Appwrite.INSTANCE.getCurrentUserId();
     }
 
+    /**
+     * 在后台向服务端确认当前会话
+     * @param onResult 主线程回调，参数为用户ID，未登录时为空字符串
+     */
+    public void refreshSession(Consumer<String> onResult) {
+        Appwrite.INSTANCE.refreshSessionWithCallback(userId -> {
+            onResult.accept(userId);
+            return null;
+        });
+    }
+
     /**
      * 添加食物记录
+     * documentId和foodId由调用方生成
      */
     public void addFoodItem(
         String userId,
+        String documentId,
+        String foodId,
         String title,
         String time,
         String imgUrl,
@@ -228,6 +273,8 @@ public class AppwriteWrapper {
     ) {
         Appwrite.INSTANCE.addFoodItemWithCallback(
             userId,
+            documentId,
+            foodId,
             title,
             time,
             imgUrl,
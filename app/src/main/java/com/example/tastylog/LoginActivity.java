@@ -65,9 +65,6 @@ public class LoginActivity extends AppCompatActivity {
             progressIndicator.setVisibility(View.GONE);
         }
         
-        // 初始化 Appwrite
-        AppwriteWrapper.init(getApplicationContext());
-        
         // 设置登录按钮点击事件
         btnLogin.setOnClickListener(v -> login());
         
@@ -4,11 +4,16 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.view.Window;
 import android.view.WindowManager;
+import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
 
+import com.example.tastylog.data.FoodRepository;
 import com.example.tastylog.fragment.AddFoodFragment;
 import com.example.tastylog.fragment.FoodDetailFragment;
 import com.example.tastylog.fragment.HomeFragment;
@@ -19,15 +24,38 @@ import com.example.tastylog.model.FoodItem;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.util.List;
+
 /**
  * 应用主界面
  * 作为容器管理各个功能Fragment的加载和切换
  */
 public class MainActivity extends AppCompatActivity {
     
+    // 各个Tab的Fragment标签，每个Tab只创建一个实例，切换时显示或隐藏
+    private static final String TAG_HOME = "tab_home";
+    private static final String TAG_STATS = "tab_stats";
+    private static final String TAG_MAP = "tab_map";
+    private static final String TAG_MINE = "tab_mine";
+    private static final String[] TAB_TAGS = {TAG_HOME, TAG_STATS, TAG_MAP, TAG_MINE};
+    private static final String STATE_CURRENT_TAB = "current_tab";
+
     private FloatingActionButton fab;
     private BottomNavigationView bottomNav;
     private static MainActivity instance;
+    private String currentTabTag = TAG_HOME;
+    // 服务端拒绝本地修改时提示用户，修改已被回滚
+    private final FoodRepository.FoodListObserver writeRejectedObserver = new FoodRepository.FoodListObserver() {
+        @Override
+        public void onFoodListChanged() {
+        }
+
+        @Override
+        public void onWriteRejected(FoodItem foodItem, Exception e) {
+            Toast.makeText(MainActivity.this, "「" + foodItem.getTitle() + "」同步失败，已撤销修改: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -35,9 +63,6 @@ public class MainActivity extends AppCompatActivity {
         instance = this;
         setContentView(R.layout.activity_main);
 
-        // 使用 Java 包装类初始化 Appwrite
-        AppwriteWrapper.init(getApplicationContext());
-
         // 设置状态栏颜色
         Window window = getWindow();
         window.addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
@@ -50,40 +75,29 @@ public class MainActivity extends AppCompatActivity {
         bottomNav.setOnItemSelectedListener(item -> {
             int itemId = item.getItemId();
             if (itemId == R.id.nav_home) {
-                switchFragment(new HomeFragment());
+                switchTab(TAG_HOME);
                 return true;
             } else if (itemId == R.id.nav_stats) {
-                switchFragment(new StatsFragment());
+                switchTab(TAG_STATS);
                 return true;
             } else if (itemId == R.id.nav_favorite) {
-                switchFragment(new MapFragment());
+                switchTab(TAG_MAP);
                 return true;
             } else if (itemId == R.id.nav_mine) {
-                switchFragment(new MineFragment());
+                switchTab(TAG_MINE);
                 return true;
             }
             return false;
         });
 
         // 设置悬浮按钮
-        fab.setOnClickListener(v -> {
-            // 使用Fragment替换，而不是启动新Activity
-            AddFoodFragment addFoodFragment = new AddFoodFragment();
-            
-            // 隐藏FAB（在事务开始前）
-            fab.hide();
-            
-            // 执行事务
-            getSupportFragmentManager()
-                .beginTransaction()
-                .replace(R.id.container, addFoodFragment)
-                .addToBackStack(null)
-                .commit();
-        });
+        fab.setOnClickListener(v -> openPage(new AddFoodFragment()));
 
-        // 默认显示首页
+        // 默认显示首页，重建时Tab的Fragment由FragmentManager恢复
         if (savedInstanceState == null) {
-            switchFragment(new HomeFragment());
+            switchTab(TAG_HOME);
+        } else {
+            currentTabTag = savedInstanceState.getString(STATE_CURRENT_TAB, TAG_HOME);
         }
         
         // 添加回退栈监听器，确保返回时正确显示/隐藏FAB
@@ -93,7 +107,7 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    // 修改openFoodDetail方法，使用Fragment替换而不是启动新Activity
+    // 修改openFoodDetail方法，使用Fragment而不是启动新Activity
     public void openFoodDetail(FoodItem foodItem) {
         // 创建FoodDetailFragment并传递参数
         Bundle bundle = new Bundle();
@@ -102,20 +116,47 @@ public class MainActivity extends AppCompatActivity {
         FoodDetailFragment detailFragment = new FoodDetailFragment();
         detailFragment.setArguments(bundle);
         
+        openPage(detailFragment);
+    }
+
+    public void openPage(Fragment page) {
+        openPage(page, 0, 0);
+    }
+
+    /**
+     * 在当前页面上方打开一个页面，如添加、详情、编辑
+     * 当前页面只是隐藏，返回时直接显示，不需要重建视图
+     *
+     * @param page 要打开的页面
+     * @param enterAnim 新页面进入动画，0表示无动画
+     * @param exitAnim 当前页面退出动画，0表示无动画
+     */
+    public void openPage(Fragment page, int enterAnim, int exitAnim) {
         // 隐藏FAB（在事务开始前）
         fab.hide();
         
-        // 使用Fragment事务替换当前Fragment
-        getSupportFragmentManager()
-            .beginTransaction()
-            .replace(R.id.container, detailFragment)
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        FragmentTransaction transaction = fragmentManager.beginTransaction()
+            .setCustomAnimations(enterAnim, exitAnim)
+            .setReorderingAllowed(true);
+        Fragment visibleFragment = getVisibleFragment();
+        if (visibleFragment != null) {
+            transaction.hide(visibleFragment);
+        }
+        transaction.add(R.id.container, page)
             .addToBackStack(null)
             .commit();
     }
 
-    private void switchFragment(Fragment fragment) {
+    /**
+     * 切换到指定的Tab
+     * 关闭Tab上方打开的页面，隐藏其他Tab并显示目标Tab，第一次切换到时才创建。
+     * 隐藏的Tab最多停在STARTED，不再resume，保留视图和数据
+     */
+    private void switchTab(String tag) {
+        currentTabTag = tag;
         // 在执行新事务前，立即更新FAB状态
-        if (fragment instanceof HomeFragment) {
+        if (TAG_HOME.equals(tag)) {
             fab.show();
         } else {
             fab.hide();
@@ -123,30 +164,66 @@ public class MainActivity extends AppCompatActivity {
         
         // 使用handler推迟事务执行，避免可能的冲突
         new Handler().post(() -> {
-            // 清除回退栈中的所有Fragment
-            if (getSupportFragmentManager().isStateSaved()) {
+            FragmentManager fragmentManager = getSupportFragmentManager();
+            if (fragmentManager.isStateSaved()) {
                 return; // 如果状态已保存，不执行操作
             }
             
-            getSupportFragmentManager().popBackStackImmediate(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+            // 关闭回退栈中的详情、添加等页面
+            fragmentManager.popBackStackImmediate(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
             
-            // 替换当前Fragment
-            getSupportFragmentManager()
-                .beginTransaction()
-                .replace(R.id.container, fragment)
-                .commit();
+            FragmentTransaction transaction = fragmentManager.beginTransaction().setReorderingAllowed(true);
+            for (String tabTag : TAB_TAGS) {
+                Fragment tab = fragmentManager.findFragmentByTag(tabTag);
+                if (tab == null) {
+                    continue;
+                }
+                if (tabTag.equals(tag)) {
+                    transaction.show(tab).setMaxLifecycle(tab, Lifecycle.State.RESUMED);
+                } else if (!tab.isHidden()) {
+                    transaction.hide(tab).setMaxLifecycle(tab, Lifecycle.State.STARTED);
+                }
+            }
+            if (fragmentManager.findFragmentByTag(tag) == null) {
+                transaction.add(R.id.container, createTab(tag), tag);
+            }
+            transaction.commit();
         });
     }
+
+    private static Fragment createTab(String tag) {
+        switch (tag) {
+            case TAG_STATS:
+                return new StatsFragment();
+            case TAG_MAP:
+                return new MapFragment();
+            case TAG_MINE:
+                return new MineFragment();
+            default:
+                return new HomeFragment();
+        }
+    }
+
+    /**
+     * 容器中当前显示的Fragment，即最后添加且未隐藏的那个
+     */
+    private Fragment getVisibleFragment() {
+        List<Fragment> fragments = getSupportFragmentManager().getFragments();
+        for (int i = fragments.size() - 1; i >= 0; i--) {
+            Fragment fragment = fragments.get(i);
+            if (fragment.getId() == R.id.container && !fragment.isHidden()) {
+                return fragment;
+            }
+        }
+        return null;
+    }
     
     /**
      * 更新FAB的显示状态
-     * 在HomeFragment中显示，在其他Fragment中隐藏
+     * 只在首页Tab且上方没有打开其他页面时显示
      */
     public void updateFabVisibility() {
-        Fragment currentFragment = getSupportFragmentManager().findFragmentById(R.id.container);
-        
-        // 简化逻辑：只在HomeFragment中显示FAB，其他所有Fragment中隐藏
-        if (currentFragment instanceof HomeFragment) {
+        if (getSupportFragmentManager().getBackStackEntryCount() == 0 && TAG_HOME.equals(currentTabTag)) {
             fab.show();
         } else {
             fab.hide();
@@ -167,12 +244,10 @@ public class MainActivity extends AppCompatActivity {
                 new Handler().postDelayed(this::updateFabVisibility, 100);
             }
         } else {
-            // 如果回退栈为空，检查当前Fragment
-            Fragment currentFragment = getSupportFragmentManager().findFragmentById(R.id.container);
-            
-            if (!(currentFragment instanceof HomeFragment)) {
+            // 如果回退栈为空，检查当前Tab
+            if (!TAG_HOME.equals(currentTabTag)) {
                 // 如果当前不是HomeFragment，切换到HomeFragment
-                bottomNav.setSelectedItemId(R.id.nav_home); // 这会触发底部导航栏的选中事件，进而调用switchFragment
+                bottomNav.setSelectedItemId(R.id.nav_home); // 这会触发底部导航栏的选中事件，进而调用switchTab
             } else {
                 // 如果当前已经是HomeFragment，执行正常的回退操作（退出应用）
                 super.onBackPressed();
@@ -180,22 +255,37 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
-    public void refreshHomeFragment() {
-        // 添加这一行以获取当前Fragment
-        Fragment currentFragment = getSupportFragmentManager().findFragmentById(R.id.container);
-        
-        if (currentFragment instanceof HomeFragment) {
-            ((HomeFragment) currentFragment).refreshData();
-        } else {
-            // 如果当前不是HomeFragment，切换到HomeFragment
-            switchFragment(new HomeFragment());
-        }
+    /**
+     * 保存或删除记录后回到首页
+     * 首页观察FoodRepository的变化自动更新，这里不再重新拉取数据
+     */
+    public void returnToHome() {
+        bottomNav.getMenu().findItem(R.id.nav_home).setChecked(true);
+        switchTab(TAG_HOME);
     }
 
     public static MainActivity getInstance() {
         return instance;
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_CURRENT_TAB, currentTabTag);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        FoodRepository.getInstance(this).addObserver(writeRejectedObserver);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        FoodRepository.getInstance(this).removeObserver(writeRejectedObserver);
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
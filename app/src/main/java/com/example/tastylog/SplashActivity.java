@@ -37,7 +37,19 @@ public class SplashActivity extends AppCompatActivity {
      * 根据登录状态决定跳转到登录页或主页
      */
     private void navigateToNextScreen() {
+        // 优先使用缓存的会话，没有缓存时在后台向服务端确认，不阻塞主线程
         String userId = AppwriteWrapper.getInstance().getCurrentUserId();
+        if (userId != null && !userId.isEmpty()) {
+            navigateToNextScreen(userId);
+        } else {
+            AppwriteWrapper.getInstance().refreshSession(this::navigateToNextScreen);
+        }
+    }
+    
+    private void navigateToNextScreen(String userId) {
+        if (isFinishing()) {
+            return;
+        }
         Intent intent;
 
         if (userId != null && !userId.isEmpty()) {
@@ -19,5 +19,8 @@ public class TastyLogApplication extends Application {
         
         // 设置用户代理，避免被服务器拒绝
         Configuration.getInstance().setUserAgentValue(context.getPackageName());
+        
+        // 在启动页之前初始化Appwrite，启动页需要读取缓存的登录状态
+        AppwriteWrapper.init(context);
     }
 } 
\ No newline at end of file
@@ -10,6 +10,7 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -18,7 +19,7 @@ import com.example.tastylog.model.FoodItem;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.List;
 
 /**
@@ -26,8 +27,12 @@ import java.util.List;
  * 负责将食物数据列表绑定到RecyclerView上并处理交互事件
  */
 public class FoodCardAdapter extends RecyclerView.Adapter<FoodCardAdapter.ViewHolder> {
-    private List<FoodItem> foodList = new ArrayList<>();
+    // 在后台线程比较新旧列表，只通知发生变化的位置
+    private final AsyncListDiffer<FoodItem> differ = new AsyncListDiffer<>(this, new FoodItemDiffCallback());
     private OnItemClickListener listener;
+    // 所有卡片共用的空闲标签Chip，卡片标签变少时归还，变多时优先取用，滚动时不再创建
+    private final ArrayDeque<Chip> chipPool = new ArrayDeque<>();
+    private static final int MAX_POOLED_CHIPS = 32;
 
     public interface OnItemClickListener {
         void onItemClick(FoodItem foodItem);
@@ -41,9 +46,12 @@ public class FoodCardAdapter extends RecyclerView.Adapter<FoodCardAdapter.ViewHo
         this.listener = listener;
     }
 
+    /**
+     * 设置列表数据，差异在后台计算完成后再更新界面
+     * @param foodList 食物列表，提交后不能再修改
+     */
     public void setFoodList(List<FoodItem> foodList) {
-        this.foodList = foodList;
-        notifyDataSetChanged();
+        differ.submitList(foodList);
     }
 
     @NonNull
@@ -56,7 +64,7 @@ public class FoodCardAdapter extends RecyclerView.Adapter<FoodCardAdapter.ViewHo
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        FoodItem foodItem = foodList.get(position);
+        FoodItem foodItem = differ.getCurrentList().get(position);
         
         holder.tvTitle.setText(foodItem.getTitle());
         holder.tvTime.setText(foodItem.getTime());
@@ -82,14 +90,7 @@ public class FoodCardAdapter extends RecyclerView.Adapter<FoodCardAdapter.ViewHo
             holder.tvPrice.setText(price);
         }
         
-        holder.chipGroup.removeAllViews();
-        for (String tag : foodItem.getTags()) {
-            Chip chip = new Chip(holder.chipGroup.getContext());
-            chip.setText(tag);
-            chip.setChipBackgroundColorResource(R.color.colorChipBackground);
-            chip.setTextColor(ContextCompat.getColor(holder.chipGroup.getContext(), R.color.colorChipText));
-            holder.chipGroup.addView(chip);
-        }
+        bindTags(holder.chipGroup, foodItem.getTags());
         
         if (!TextUtils.isEmpty(foodItem.getImageUrl())) {
             Glide.with(holder.ivFood.getContext())
@@ -109,9 +110,51 @@ public class FoodCardAdapter extends RecyclerView.Adapter<FoodCardAdapter.ViewHo
         });
     }
 
+    /**
+     * 复用卡片上已有的Chip显示标签，不够时从共用池中取，多余的归还到池中
+     */
+    private void bindTags(ChipGroup chipGroup, List<String> tags) {
+        int count = tags != null ? tags.size() : 0;
+        while (chipGroup.getChildCount() > count) {
+            int last = chipGroup.getChildCount() - 1;
+            Chip chip = (Chip) chipGroup.getChildAt(last);
+            chipGroup.removeViewAt(last);
+            if (chipPool.size() < MAX_POOLED_CHIPS) {
+                chipPool.push(chip);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            Chip chip;
+            if (i < chipGroup.getChildCount()) {
+                chip = (Chip) chipGroup.getChildAt(i);
+            } else {
+                chip = chipPool.poll();
+                if (chip == null) {
+                    chip = createChip(chipGroup);
+                }
+                chipGroup.addView(chip);
+            }
+            chip.setText(tags.get(i));
+        }
+    }
+
+    private static Chip createChip(ChipGroup chipGroup) {
+        Chip chip = new Chip(chipGroup.getContext());
+        chip.setChipBackgroundColorResource(R.color.colorChipBackground);
+        chip.setTextColor(ContextCompat.getColor(chipGroup.getContext(), R.color.colorChipText));
+        return chip;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        // 池中的Chip持有旧的Context
+        chipPool.clear();
+    }
+
     @Override
     public int getItemCount() {
-        return foodList.size();
+        return differ.getCurrentList().size();
     }
 
     /**
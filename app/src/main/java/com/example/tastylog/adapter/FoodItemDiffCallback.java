@@ -0,0 +1,48 @@
+package com.example.tastylog.adapter;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.tastylog.model.FoodItem;
+
+/**
+ * 食物记录列表的差异比较
+ *
+ * 文档ID相同视为同一条记录，列表中显示的字段都相同时不需要重新绑定
+ */
+public class FoodItemDiffCallback extends DiffUtil.ItemCallback<FoodItem> {
+
+    @Override
+    public boolean areItemsTheSame(@NonNull FoodItem oldItem, @NonNull FoodItem newItem) {
+        return isSameRecord(oldItem, newItem);
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull FoodItem oldItem, @NonNull FoodItem newItem) {
+        return hasSameContent(oldItem, newItem);
+    }
+
+    private static boolean isSameRecord(FoodItem oldItem, FoodItem newItem) {
+        // 文档ID在本地创建时生成，旧数据没有时退回本地ID
+        if (oldItem.getDocumentId() != null || newItem.getDocumentId() != null) {
+            return TextUtils.equals(oldItem.getDocumentId(), newItem.getDocumentId());
+        }
+        return TextUtils.equals(oldItem.getId(), newItem.getId());
+    }
+
+    private static boolean hasSameContent(FoodItem oldItem, FoodItem newItem) {
+        if (oldItem == newItem) {
+            return true;
+        }
+        return TextUtils.equals(oldItem.getTitle(), newItem.getTitle())
+                && TextUtils.equals(oldItem.getTime(), newItem.getTime())
+                && oldItem.getRating() == newItem.getRating()
+                && oldItem.getPriceCents() == newItem.getPriceCents()
+                && TextUtils.equals(oldItem.getLocation(), newItem.getLocation())
+                && TextUtils.equals(oldItem.getImageUrl(), newItem.getImageUrl())
+                && (oldItem.getTags() == null ? newItem.getTags() == null
+                        : oldItem.getTags().equals(newItem.getTags()));
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.tastylog.adapter;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,27 +10,27 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.tastylog.R;
 import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.utils.FoodValueUtils;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * 食物记录适配器
- * 用于展示按日期分组的食物记录，包括日期标题和每日消费总计
+ * 用于展示按日期分组的食物记录，包括日期标题和每日消费总计。
+ * 只持有分页窗口内的记录，日期标题作为分隔插入，跨越页边界的一天只在窗口内出现一次标题
  */
 public class FoodRecordAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
@@ -36,72 +39,66 @@ public class FoodRecordAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
     private static final String[] WEEKDAYS = {"周日", "周一", "周二", "周三", "周四", "周五", "周六"};
 
-    private List<Object> items = new ArrayList<>();
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-    private SimpleDateFormat displayDateFormat = new SimpleDateFormat("yyyy年MM月dd日", Locale.getDefault());
+    // 分组和差异比较都在这个线程执行，按提交顺序完成
+    private static final Executor BACKGROUND_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AsyncListDiffer<Object> differ = new AsyncListDiffer<>(
+            new AdapterListUpdateCallback(this),
+            new AsyncDifferConfig.Builder<>(new RowDiffCallback())
+                    .setBackgroundThreadExecutor(BACKGROUND_EXECUTOR)
+                    .build());
+    // 每次setData加一，只提交最后一次的分组结果
+    private int dataGeneration;
 
     /**
-     * 设置数据并按日期分组
-     * @param foodItems 食物项列表
+     * 查询一整天的支出
      */
-public void setData(List<FoodItem> foodItems) {
-        // 按日期分组
-        Map<String, List<FoodItem>> groupedItems = new HashMap<>();
-        Map<String, Double> dailyExpenses = new HashMap<>();
-
-        for (FoodItem item : foodItems) {
-            try {
-                String dateStr = item.getTime().split(" ")[0]; // 获取日期部分
-                if (!groupedItems.containsKey(dateStr)) {
-                    groupedItems.put(dateStr, new ArrayList<>());
-                    dailyExpenses.put(dateStr, 0.0);
-                }
-                groupedItems.get(dateStr).add(item);
-
-                // 计算每日总支出
-                try {
-                    String priceStr = item.getPrice();
-                    if (priceStr != null && !priceStr.isEmpty()) {
-                        priceStr = priceStr.replaceAll("[^0-9.]", "");
-                        if (!priceStr.isEmpty()) {
-                            double price = Double.parseDouble(priceStr);
-                            dailyExpenses.put(dateStr, dailyExpenses.get(dateStr) + price);
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    // 忽略价格解析错误
-                }
-            } catch (Exception e) {
-                // 忽略日期解析错误
-            }
-        }
-
-        // 按日期降序排序
-        TreeMap<String, List<FoodItem>> sortedGroups = new TreeMap<>(Collections.reverseOrder());
-        sortedGroups.putAll(groupedItems);
-
-        // 构建最终的项目列表
-        items.clear();
-        for (Map.Entry<String, List<FoodItem>> entry : sortedGroups.entrySet()) {
-            String dateStr = entry.getKey();
-            List<FoodItem> dailyItems = entry.getValue();
-
-            // 添加日期头部
-            items.add(new DateHeader(dateStr, dailyExpenses.getOrDefault(dateStr, 0.0)));
+    public interface DailyExpenseLookup {
+        long getDailyExpenseCents(int epochDay);
+    }
 
-            // 为每个日期组按时间排序
-            Collections.sort(dailyItems, (item1, item2) -> item2.getTime().compareTo(item1.getTime()));
+    /**
+     * 设置当前分页窗口的数据，在日期变化处插入日期头部
+     * 生成行和差异比较在后台线程完成，之后只通知发生变化的位置。
+     * 窗口边界可能截断某一天的记录，日期头部的金额从dailyExpense查询，始终是全天的支出
+     * @param foodItems 窗口内的食物项，按日期倒序，提交后不能再修改
+     * @param dailyExpense 每天的完整支出
+     */
+    public void setData(List<FoodItem> foodItems, DailyExpenseLookup dailyExpense) {
+        int generation = ++dataGeneration;
+        BACKGROUND_EXECUTOR.execute(() -> {
+            List<Object> rows = buildRows(foodItems, dailyExpense);
+            mainHandler.post(() -> {
+                if (generation == dataGeneration) {
+                    differ.submitList(rows);
+                }
+            });
+        });
+    }
 
-            // 添加该日期的所有食物项
-            items.addAll(dailyItems);
+    /**
+     * 生成显示用的行，文字在这里一次性格式化好
+     * 记录已按日期排好序，只需在日期变化处插入分隔用的日期头部，窗口开头总有一个头部
+     */
+    private static List<Object> buildRows(List<FoodItem> foodItems, DailyExpenseLookup dailyExpense) {
+        List<Object> rows = new ArrayList<>(foodItems.size() + foodItems.size() / 4 + 1);
+        int lastDay = 0;
+        for (int i = 0; i < foodItems.size(); i++) {
+            FoodItem item = foodItems.get(i);
+            int epochDay = item.getEpochDay();
+            if (i == 0 || epochDay != lastDay) {
+                rows.add(DateHeaderRow.create(epochDay, dailyExpense.getDailyExpenseCents(epochDay)));
+                lastDay = epochDay;
+            }
+            rows.add(FoodRecordRow.create(item));
         }
-
-        notifyDataSetChanged();
+        return rows;
     }
 
     @Override
     public int getItemViewType(int position) {
-        return items.get(position) instanceof DateHeader ? VIEW_TYPE_DATE_HEADER : VIEW_TYPE_FOOD_ITEM;
+        return differ.getCurrentList().get(position) instanceof DateHeaderRow ? VIEW_TYPE_DATE_HEADER : VIEW_TYPE_FOOD_ITEM;
     }
 
     @NonNull
@@ -121,17 +118,15 @@ public void setData(List<FoodItem> foodItems) {
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         if (holder instanceof DateHeaderViewHolder) {
-            DateHeader header = (DateHeader) items.get(position);
-            ((DateHeaderViewHolder) holder).bind(header);
+            ((DateHeaderViewHolder) holder).bind((DateHeaderRow) differ.getCurrentList().get(position));
         } else if (holder instanceof FoodItemViewHolder) {
-            FoodItem foodItem = (FoodItem) items.get(position);
-            ((FoodItemViewHolder) holder).bind(foodItem);
+            ((FoodItemViewHolder) holder).bind((FoodRecordRow) differ.getCurrentList().get(position));
         }
     }
 
     @Override
     public int getItemCount() {
-        return items.size();
+        return differ.getCurrentList().size();
     }
 
     // 日期头部的ViewHolder
@@ -147,29 +142,10 @@ public void setData(List<FoodItem> foodItems) {
             tvDailyExpense = itemView.findViewById(R.id.tv_daily_expense);
         }
 
-        public void bind(DateHeader header) {
-            try {
-                // 解析日期以获取星期信息
-                Date date = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).parse(header.getDate());
-                if (date != null) {
-                    // 设置日期
-                    tvDate.setText(new SimpleDateFormat("yyyy年MM月dd日", Locale.getDefault()).format(date));
-
-                    // 设置星期
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTime(date);
-                    int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK) - 1; // 0-6
-                    tvWeekday.setText(WEEKDAYS[dayOfWeek]);
-
-                    // 设置每日支出
-                    tvDailyExpense.setText(String.format(Locale.getDefault(), "支出: ¥%.2f", header.getDailyExpense()));
-                }
-            } catch (ParseException e) {
-                // 解析失败，使用原始日期字符串
-                tvDate.setText(header.getDate());
-                tvWeekday.setText("");
-                tvDailyExpense.setText(String.format(Locale.getDefault(), "支出: ¥%.2f", header.getDailyExpense()));
-            }
+        public void bind(DateHeaderRow header) {
+            tvDate.setText(header.dateText);
+            tvWeekday.setText(header.weekdayText);
+            tvDailyExpense.setText(header.expenseText);
         }
     }
 
@@ -188,25 +164,15 @@ public void setData(List<FoodItem> foodItems) {
             tvPrice = itemView.findViewById(R.id.tv_price);
         }
 
-        public void bind(FoodItem foodItem) {
-            tvFoodName.setText(foodItem.getTitle());
-            tvRestaurant.setText(foodItem.getLocation() != null ? foodItem.getLocation() : "");
-
-            // 格式化价格
-            String price = foodItem.getPrice();
-            if (price != null && !price.isEmpty()) {
-                if (!price.startsWith("¥")) {
-                    price = "¥" + price;
-                }
-                tvPrice.setText(price);
-            } else {
-                tvPrice.setText("¥0.00");
-            }
+        public void bind(FoodRecordRow row) {
+            tvFoodName.setText(row.title);
+            tvRestaurant.setText(row.location);
+            tvPrice.setText(row.priceText);
 
             // 加载图片
-            if (foodItem.getImageUrl() != null && !foodItem.getImageUrl().isEmpty()) {
+            if (row.imageUrl != null) {
                 Glide.with(ivFoodImage.getContext())
-                     .load(foodItem.getImageUrl())
+                     .load(row.imageUrl)
                      .placeholder(R.drawable.placeholder_food)
                      .centerCrop()
                      .into(ivFoodImage);
@@ -216,22 +182,112 @@ public void setData(List<FoodItem> foodItems) {
         }
     }
 
-    // 日期头部数据类
-    static class DateHeader {
-        private String date;
-        private double dailyExpense;
+    /**
+     * 日期头部按日期、食物项按记录比较，行内容不可变，直接比较格式化好的文字
+     */
+    static class RowDiffCallback extends DiffUtil.ItemCallback<Object> {
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldRow, @NonNull Object newRow) {
+            if (oldRow instanceof DateHeaderRow && newRow instanceof DateHeaderRow) {
+                return ((DateHeaderRow) oldRow).epochDay == ((DateHeaderRow) newRow).epochDay;
+            }
+            if (oldRow instanceof FoodRecordRow && newRow instanceof FoodRecordRow) {
+                return TextUtils.equals(((FoodRecordRow) oldRow).key, ((FoodRecordRow) newRow).key);
+            }
+            return false;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldRow, @NonNull Object newRow) {
+            if (oldRow instanceof DateHeaderRow) {
+                return ((DateHeaderRow) oldRow).hasSameContent((DateHeaderRow) newRow);
+            }
+            return ((FoodRecordRow) oldRow).hasSameContent((FoodRecordRow) newRow);
+        }
+    }
+
+    /**
+     * 日期头部行，不可变，文字在后台分组时格式化
+     */
+    static final class DateHeaderRow {
+        final int epochDay;
+        final String dateText;
+        final String weekdayText;
+        final String expenseText;
+
+        private DateHeaderRow(int epochDay, String dateText, String weekdayText, String expenseText) {
+            this.epochDay = epochDay;
+            this.dateText = dateText;
+            this.weekdayText = weekdayText;
+            this.expenseText = expenseText;
+        }
+
+        static DateHeaderRow create(int epochDay, long dailyExpenseCents) {
+            String dateText;
+            String weekdayText;
+            if (epochDay != FoodValueUtils.NO_DATE) {
+                int[] date = FoodValueUtils.fromEpochDay(epochDay);
+                dateText = String.format(Locale.getDefault(), "%d年%02d月%02d日", date[0], date[1], date[2]);
+                weekdayText = WEEKDAYS[FoodValueUtils.dayOfWeek(epochDay)];
+            } else {
+                // 时间无法解析的记录
+                dateText = "未知日期";
+                weekdayText = "";
+            }
+            String expenseText = String.format(Locale.getDefault(), "支出: ¥%.2f", dailyExpenseCents / 100.0);
+            return new DateHeaderRow(epochDay, dateText, weekdayText, expenseText);
+        }
+
+        boolean hasSameContent(DateHeaderRow other) {
+            return dateText.equals(other.dateText)
+                    && weekdayText.equals(other.weekdayText)
+                    && expenseText.equals(other.expenseText);
+        }
+    }
 
-        public DateHeader(String date, double dailyExpense) {
-            this.date = date;
-            this.dailyExpense = dailyExpense;
+    /**
+     * 食物记录行，不可变，只保存列表显示的文字
+     */
+    static final class FoodRecordRow {
+        // 文档ID，没有时为本地ID
+        final String key;
+        final String title;
+        final String location;
+        final String priceText;
+        // 没有图片时为null
+        final String imageUrl;
+
+        private FoodRecordRow(String key, String title, String location, String priceText, String imageUrl) {
+            this.key = key;
+            this.title = title;
+            this.location = location;
+            this.priceText = priceText;
+            this.imageUrl = imageUrl;
         }
 
-        public String getDate() {
-            return date;
+        static FoodRecordRow create(FoodItem foodItem) {
+            String key = foodItem.getDocumentId() != null ? foodItem.getDocumentId() : foodItem.getId();
+
+            // 格式化价格
+            String price = foodItem.getPrice();
+            if (price != null && !price.isEmpty()) {
+                if (!price.startsWith("¥")) {
+                    price = "¥" + price;
+                }
+            } else {
+                price = "¥0.00";
+            }
+
+            String imageUrl = TextUtils.isEmpty(foodItem.getImageUrl()) ? null : foodItem.getImageUrl();
+            return new FoodRecordRow(key, foodItem.getTitle(), foodItem.getLocation() != null ? foodItem.getLocation() : "",
+                    price, imageUrl);
         }
 
-        public double getDailyExpense() {
-            return dailyExpense;
+        boolean hasSameContent(FoodRecordRow other) {
+            return TextUtils.equals(title, other.title)
+                    && location.equals(other.location)
+                    && priceText.equals(other.priceText)
+                    && TextUtils.equals(imageUrl, other.imageUrl);
         }
     }
-} 
\ No newline at end of file
+}
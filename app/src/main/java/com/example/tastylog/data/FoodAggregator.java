@@ -0,0 +1,147 @@
+package com.example.tastylog.data;
+
+import com.example.tastylog.utils.FoodValueUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 统计聚合
+ *
+ * 把要统计的行切成若干段，在ForkJoinPool上并行计算每段的部分和再合并，
+ * 得到总额、每日消费和评分分布。
+ * 行数较少时直接在调用线程计算。不要在主线程调用
+ */
+public final class FoodAggregator {
+
+    // 每段的行数，少于这个数不再拆分
+    private static final int CHUNK_SIZE = 8192;
+
+    private FoodAggregator() {
+    }
+
+    /**
+     * 统计表中的指定行
+     *
+     * @param table 列式快照
+     * @param rows 要统计的行号
+     * @return 统计结果
+     */
+    public static FoodStats aggregate(FoodTable table, int[] rows) {
+        Partial partial = rows.length <= CHUNK_SIZE
+                ? new Partial(table).addRows(rows, 0, rows.length)
+                : ForkJoinPool.commonPool().invoke(new AggregateTask(table, rows, 0, rows.length));
+        return partial.toStats();
+    }
+
+    private static class AggregateTask extends RecursiveTask<Partial> {
+        private final FoodTable table;
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        AggregateTask(FoodTable table, int[] rows, int from, int to) {
+            this.table = table;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return new Partial(table).addRows(rows, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(table, rows, from, mid);
+            left.fork();
+            Partial right = new AggregateTask(table, rows, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * 一段行的部分和
+     */
+    private static class Partial {
+        final FoodTable table;
+        int recordCount;
+        long totalCents;
+        // 日期 -> 当天消费
+        final Map<Integer, long[]> dayCents = new HashMap<>();
+        final int[] ratingHistogram = new int[FoodStats.RATING_BUCKETS];
+
+        Partial(FoodTable table) {
+            this.table = table;
+        }
+
+        Partial addRows(int[] rows, int from, int to) {
+            long[] priceCents = table.priceCents;
+            int[] epochDays = table.epochDays;
+            float[] ratings = table.ratings;
+
+            // 缓存中的记录按时间排序，相邻行多在同一天，复用上一次查到的日期
+            int lastDay = FoodValueUtils.NO_DATE;
+            long[] lastDayTotal = null;
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                long cents = priceCents[row];
+                recordCount++;
+                totalCents += cents;
+
+                int day = epochDays[row];
+                if (day != FoodValueUtils.NO_DATE) {
+                    if (day != lastDay) {
+                        lastDayTotal = dayCents.get(day);
+                        if (lastDayTotal == null) {
+                            lastDayTotal = new long[1];
+                            dayCents.put(day, lastDayTotal);
+                        }
+                        lastDay = day;
+                    }
+                    lastDayTotal[0] += cents;
+                }
+
+                float rating = ratings[row];
+                if (rating > 0) {
+                    ratingHistogram[Math.min(Math.round(rating * 2), FoodStats.RATING_BUCKETS - 1)]++;
+                }
+            }
+            return this;
+        }
+
+        Partial merge(Partial other) {
+            recordCount += other.recordCount;
+            totalCents += other.totalCents;
+            for (Map.Entry<Integer, long[]> entry : other.dayCents.entrySet()) {
+                long[] total = dayCents.get(entry.getKey());
+                if (total == null) {
+                    dayCents.put(entry.getKey(), entry.getValue());
+                } else {
+                    total[0] += entry.getValue()[0];
+                }
+            }
+            for (int i = 0; i < ratingHistogram.length; i++) {
+                ratingHistogram[i] += other.ratingHistogram[i];
+            }
+            return this;
+        }
+
+        FoodStats toStats() {
+            int[] days = new int[dayCents.size()];
+            int i = 0;
+            for (int day : dayCents.keySet()) {
+                days[i++] = day;
+            }
+            Arrays.sort(days);
+            long[] cents = new long[days.length];
+            for (i = 0; i < days.length; i++) {
+                cents[i] = dayCents.get(days[i])[0];
+            }
+            return new FoodStats(recordCount, totalCents, days, cents, ratingHistogram);
+        }
+    }
+}
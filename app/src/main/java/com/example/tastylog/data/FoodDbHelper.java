@@ -0,0 +1,125 @@
+package com.example.tastylog.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 本地数据库帮助类
+ *
+ * 负责本地SQLite数据库的建表和升级
+ */
+public class FoodDbHelper extends SQLiteOpenHelper {
+    public static final String DB_NAME = "tastylog.db";
+    private static final int DB_VERSION = 2;
+
+    // 食物记录表
+    public static final String TABLE_FOOD = "food_items";
+    public static final String COL_DOCUMENT_ID = "document_id";
+    public static final String COL_USER_ID = "user_id";
+    public static final String COL_FOOD_ID = "food_id";
+    public static final String COL_TITLE = "title";
+    public static final String COL_TIME = "time";
+    public static final String COL_RATING = "rating";
+    public static final String COL_PRICE = "price";
+    public static final String COL_TAGS = "tags";
+    public static final String COL_IMAGE_URL = "img_url";
+    public static final String COL_CONTENT = "content";
+    public static final String COL_LOCATION = "location";
+
+    // 同步状态表，每个用户一行
+    public static final String TABLE_SYNC_STATE = "sync_state";
+    public static final String COL_WATERMARK = "updated_at_watermark";
+    public static final String COL_LAST_RECONCILE = "last_reconcile";
+
+    // 待上传的本地修改，每个文档最多一行，记录内容以食物记录表中的为准
+    public static final String TABLE_OUTBOX = "outbox";
+    public static final String COL_OP = "op";
+    public static final String COL_REVISION = "revision";
+    public static final String COL_ATTEMPTS = "attempts";
+    public static final String COL_NEXT_ATTEMPT_AT = "next_attempt_at";
+    // 修改前云端已确认的记录（JSON），服务端拒绝修改时用于回滚，新建时为空
+    public static final String COL_BASE = "base";
+    // 是否已发出过上传请求，发出后即使失败也可能已到达云端
+    public static final String COL_SENT = "sent";
+
+    // 按月汇总，由食物记录表推导，可以随时重建；启动时不用等记录加载完就能显示首页统计
+    public static final String TABLE_MONTHLY_SUMMARY = "monthly_summary";
+    public static final String COL_YEAR_MONTH = "year_month";
+    public static final String COL_RECORD_COUNT = "record_count";
+    public static final String COL_SPENDING_CENTS = "spending_cents";
+    public static final String COL_RATING_SUM = "rating_sum";
+    public static final String COL_RATING_COUNT = "rating_count";
+
+    /**
+     * @param context 应用上下文
+     * @param name 数据库文件名，传null时创建内存数据库（用于测试）
+     */
+    public FoodDbHelper(Context context, @Nullable String name) {
+        super(context, name, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createCacheTables(db);
+        createOutboxTable(db);
+        createMonthlySummaryTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // 版本1只有食物记录表，只是云端数据的缓存，直接重建；其余的表都是新增的
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_FOOD);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+            onCreate(db);
+        }
+    }
+
+    private void createCacheTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_FOOD + " ("
+                + COL_DOCUMENT_ID + " TEXT PRIMARY KEY, "
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_FOOD_ID + " TEXT, "
+                + COL_TITLE + " TEXT, "
+                + COL_TIME + " TEXT, "
+                + COL_RATING + " REAL, "
+                + COL_PRICE + " TEXT, "
+                + COL_TAGS + " TEXT, "
+                + COL_IMAGE_URL + " TEXT, "
+                + COL_CONTENT + " TEXT, "
+                + COL_LOCATION + " TEXT)");
+        db.execSQL("CREATE INDEX idx_food_user_time ON " + TABLE_FOOD
+                + " (" + COL_USER_ID + ", " + COL_TIME + ")");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " ("
+                + COL_USER_ID + " TEXT PRIMARY KEY, "
+                + COL_WATERMARK + " TEXT, "
+                + COL_LAST_RECONCILE + " INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    private void createOutboxTable(SQLiteDatabase db) {
+        // 未上传的修改不能丢失，以后升级时不要删除这张表
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + COL_DOCUMENT_ID + " TEXT PRIMARY KEY, "
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_OP + " TEXT NOT NULL, "
+                + COL_REVISION + " INTEGER NOT NULL DEFAULT 1, "
+                + COL_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_NEXT_ATTEMPT_AT + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_BASE + " TEXT, "
+                + COL_SENT + " INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    private void createMonthlySummaryTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MONTHLY_SUMMARY + " ("
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_YEAR_MONTH + " INTEGER NOT NULL, "
+                + COL_RECORD_COUNT + " INTEGER NOT NULL, "
+                + COL_SPENDING_CENTS + " INTEGER NOT NULL, "
+                + COL_RATING_SUM + " REAL NOT NULL, "
+                + COL_RATING_COUNT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COL_USER_ID + ", " + COL_YEAR_MONTH + "))");
+    }
+}
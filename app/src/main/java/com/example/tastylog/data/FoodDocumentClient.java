@@ -0,0 +1,92 @@
+package com.example.tastylog.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import io.appwrite.exceptions.AppwriteException;
+
+/**
+ * 直接请求listDocuments接口读取一页美食文档
+ *
+ * 响应体交给FoodDocumentDecoder流式解析，不经过SDK的Document和Map。
+ * 请求在调用线程同步执行，不要在主线程调用
+ */
+public final class FoodDocumentClient {
+
+    private final String endpoint;
+    private final String projectId;
+
+    /**
+     * @param endpoint 服务端地址，如https://cloud.appwrite.io/v1
+     * @param projectId 项目ID
+     */
+    public FoodDocumentClient(String endpoint, String projectId) {
+        this.endpoint = endpoint;
+        this.projectId = projectId;
+    }
+
+    /**
+     * 读取一页文档
+     *
+     * @param databaseId 数据库ID
+     * @param collectionId 集合ID
+     * @param queries 查询条件，为SDK的Query生成的字符串
+     * @param jwt 当前会话的JWT
+     * @return 解析结果
+     * @throws AppwriteException 服务端返回非2xx状态码，code为HTTP状态码
+     * @throws IOException 网络错误或响应体格式错误
+     */
+    public FoodDocumentDecoder.Page listDocuments(String databaseId, String collectionId, List<String> queries,
+                                                  String jwt) throws AppwriteException, IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                buildUrl(databaseId, collectionId, queries)).openConnection();
+        try {
+            connection.setRequestProperty("X-Appwrite-Project", projectId);
+            connection.setRequestProperty("X-Appwrite-JWT", jwt);
+            connection.setRequestProperty("Accept", "application/json");
+
+            int code = connection.getResponseCode();
+            if (code < 200 || code > 299) {
+                throw new AppwriteException("获取美食列表失败: HTTP " + code, code, null,
+                        readBody(connection.getErrorStream()));
+            }
+            return FoodDocumentDecoder.decode(connection.getInputStream());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private String buildUrl(String databaseId, String collectionId, List<String> queries) throws IOException {
+        StringBuilder url = new StringBuilder(endpoint)
+                .append("/databases/").append(databaseId)
+                .append("/collections/").append(collectionId)
+                .append("/documents");
+        for (int i = 0; i < queries.size(); i++) {
+            url.append(i == 0 ? '?' : '&')
+                    .append("queries%5B%5D=").append(URLEncoder.encode(queries.get(i), "UTF-8"));
+        }
+        return url.toString();
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        StringBuilder body = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[1024];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, count);
+            }
+        }
+        return body.toString();
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.tastylog.data;
+
+import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.tastylog.model.FoodItem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 美食文档流式解析器
+ *
+ * 逐个token读取listDocuments接口的响应体，直接写入FoodItem字段，
+ * 不再为每条记录构建Document和Map。price可以是数字或字符串，tag中的逗号分隔多个标签
+ */
+public final class FoodDocumentDecoder {
+
+    private FoodDocumentDecoder() {
+    }
+
+    /**
+     * 一页解析结果
+     */
+    public static class Page {
+        public final List<FoodItem> items;
+        // 本页最后一条文档的ID，用作下一页的游标
+        public final String lastDocumentId;
+        // 本页文档中最大的$updatedAt
+        public final String maxUpdatedAt;
+
+        Page(List<FoodItem> items, String lastDocumentId, String maxUpdatedAt) {
+            this.items = items;
+            this.lastDocumentId = lastDocumentId;
+            this.maxUpdatedAt = maxUpdatedAt;
+        }
+    }
+
+    /**
+     * 解析listDocuments的响应体，解析完成后关闭输入流
+     *
+     * @param in 响应体
+     * @return 解析结果
+     * @throws IOException 读取失败或JSON格式错误
+     */
+    public static Page decode(InputStream in) throws IOException {
+        List<FoodItem> items = new ArrayList<>();
+        String lastDocumentId = null;
+        String maxUpdatedAt = null;
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"documents".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    DocumentFields fields = readDocument(reader);
+                    items.add(fields.item);
+                    lastDocumentId = fields.item.getDocumentId();
+                    // $updatedAt是统一格式的ISO 8601时间，可以直接按字符串比较
+                    if (fields.updatedAt != null
+                            && (maxUpdatedAt == null || fields.updatedAt.compareTo(maxUpdatedAt) > 0)) {
+                        maxUpdatedAt = fields.updatedAt;
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        return new Page(items, lastDocumentId, maxUpdatedAt);
+    }
+
+    private static class DocumentFields {
+        final FoodItem item = new FoodItem();
+        String updatedAt;
+    }
+
+    private static DocumentFields readDocument(JsonReader reader) throws IOException {
+        DocumentFields fields = new DocumentFields();
+        FoodItem item = fields.item;
+        String foodId = null;
+        item.setRating(0.0f);
+        item.setPrice("¥0");
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "$id":
+                    item.setDocumentId(reader.nextString());
+                    break;
+                case "$updatedAt":
+                    fields.updatedAt = reader.nextString();
+                    break;
+                case "food_id":
+                    foodId = reader.nextString();
+                    break;
+                case "title":
+                    item.setTitle(reader.nextString());
+                    break;
+                case "time":
+                    item.setTime(reader.nextString());
+                    break;
+                case "rating":
+                    item.setRating(readRating(reader));
+                    break;
+                case "price":
+                    readPrice(reader, item);
+                    break;
+                case "tag":
+                    readTags(reader.nextString(), item.getTags());
+                    break;
+                case "img_url":
+                    item.setImageUrl(reader.nextString());
+                    break;
+                case "content":
+                    item.setContent(reader.nextString());
+                    break;
+                case "location":
+                    item.setLocation(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // food_id不存在时使用文档ID
+        item.setId(foodId != null ? foodId : item.getDocumentId());
+        return fields;
+    }
+
+    private static float readRating(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return (float) reader.nextDouble();
+        }
+        if (reader.peek() == JsonToken.STRING) {
+            try {
+                return Float.parseFloat(reader.nextString());
+            } catch (NumberFormatException e) {
+                return 0.0f;
+            }
+        }
+        reader.skipValue();
+        return 0.0f;
+    }
+
+    private static void readPrice(JsonReader reader, FoodItem item) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            // 直接保存为分，显示字符串与SDK解析出的Double格式相同，由FoodItem按需生成
+            item.setPriceCents(Math.round(reader.nextDouble() * 100));
+            return;
+        }
+        if (reader.peek() == JsonToken.STRING) {
+            String price = reader.nextString();
+            item.setPrice(price.startsWith("¥") ? price : "¥" + price);
+            return;
+        }
+        reader.skipValue();
+    }
+
+    private static void readTags(String tag, List<String> tags) {
+        if (TextUtils.isEmpty(tag)) {
+            return;
+        }
+        // 数据库中是单个tag字段，包含逗号时分割为多个标签
+        if (tag.contains(",")) {
+            for (String t : tag.split(",")) {
+                tags.add(t.trim());
+            }
+        } else {
+            tags.add(tag);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.tastylog.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * 美食记录筛选条件
+ *
+ * 通过Builder设置需要的条件，未设置的条件不参与筛选。
+ * compile时把条件换算为FoodTable列上的整数比较，位置和标签先在字典上求值一次，
+ * 之后逐行只做数组访问。对象不可变，可以在后台线程使用
+ */
+public final class FoodFilter {
+
+    public static final FoodFilter ALL = new Builder().build();
+
+    private final boolean filterDate;
+    private final int startDay;
+    private final int endDay;
+    private final boolean filterPrice;
+    private final long minPriceCents;
+    private final long maxPriceCents;
+    private final boolean filterRating;
+    private final int minRating;
+    private final int maxRating;
+    private final String location;
+    private final String tag;
+
+    private FoodFilter(Builder builder) {
+        filterDate = builder.filterDate;
+        startDay = builder.startDay;
+        endDay = builder.endDay;
+        filterPrice = builder.filterPrice;
+        minPriceCents = builder.minPriceCents;
+        maxPriceCents = builder.maxPriceCents;
+        filterRating = builder.filterRating;
+        minRating = builder.minRating;
+        maxRating = builder.maxRating;
+        location = builder.location;
+        tag = builder.tag;
+    }
+
+    public boolean hasDateRange() {
+        return filterDate;
+    }
+
+    public int getStartDay() {
+        return startDay;
+    }
+
+    public int getEndDay() {
+        return endDay;
+    }
+
+    /**
+     * 是否只有日期条件
+     */
+    public boolean isDateOnly() {
+        return !filterPrice && !filterRating && location == null && tag == null;
+    }
+
+    /**
+     * 对一张表求值
+     *
+     * @param table 列式快照
+     * @return 符合全部条件的行号，按行号升序
+     */
+    public int[] apply(FoodTable table) {
+        return compile(table).apply();
+    }
+
+    /**
+     * 把条件编译为表上的逐行判断，只包含已设置的条件
+     *
+     * @param table 列式快照
+     * @return 编译后的筛选器
+     */
+    public Compiled compile(FoodTable table) {
+        List<RowPredicate> predicates = new ArrayList<>();
+        if (filterDate) {
+            int[] epochDays = table.epochDays;
+            // 时间无法解析的记录为Integer.MIN_VALUE，自然落在范围外
+            predicates.add(row -> epochDays[row] >= startDay && epochDays[row] <= endDay);
+        }
+        if (filterPrice) {
+            long[] priceCents = table.priceCents;
+            predicates.add(row -> priceCents[row] >= minPriceCents && priceCents[row] <= maxPriceCents);
+        }
+        if (filterRating) {
+            float[] ratings = table.ratings;
+            predicates.add(row -> {
+                int rating = (int) ratings[row];
+                return rating >= minRating && rating <= maxRating;
+            });
+        }
+        if (location != null) {
+            // 位置字典通常很小，先对每个位置判断一次，逐行按位置ID查表
+            boolean[] locationMatches = new boolean[table.getLocationCount()];
+            for (int id = 0; id < locationMatches.length; id++) {
+                locationMatches[id] = table.getLocation(id).toLowerCase(Locale.getDefault()).contains(location);
+            }
+            int[] locationIds = table.locationIds;
+            // 没有位置的记录不参与位置筛选
+            predicates.add(row -> locationIds[row] == FoodTable.NO_LOCATION || locationMatches[locationIds[row]]);
+        }
+        if (tag != null) {
+            int tagId = table.findTag(tag);
+            if (tagId < 0) {
+                predicates.add(row -> false);
+            } else {
+                predicates.add(row -> table.hasTag(row, tagId));
+            }
+        }
+        return new Compiled(table.size, predicates.toArray(new RowPredicate[0]));
+    }
+
+    /**
+     * 条件相同的筛选器相等，可作为缓存的键
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FoodFilter)) {
+            return false;
+        }
+        FoodFilter other = (FoodFilter) o;
+        // 未启用的条件不比较其取值
+        return filterDate == other.filterDate
+                && (!filterDate || startDay == other.startDay && endDay == other.endDay)
+                && filterPrice == other.filterPrice
+                && (!filterPrice || minPriceCents == other.minPriceCents && maxPriceCents == other.maxPriceCents)
+                && filterRating == other.filterRating
+                && (!filterRating || minRating == other.minRating && maxRating == other.maxRating)
+                && Objects.equals(location, other.location)
+                && Objects.equals(tag, other.tag);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = filterDate ? 31 * startDay + endDay : 0;
+        result = 31 * result + (filterPrice ? Long.hashCode(31 * minPriceCents + maxPriceCents) : 0);
+        result = 31 * result + (filterRating ? 31 * minRating + maxRating + 1 : 0);
+        result = 31 * result + (location != null ? location.hashCode() : 0);
+        result = 31 * result + (tag != null ? tag.hashCode() : 0);
+        return result;
+    }
+
+    interface RowPredicate {
+        boolean test(int row);
+    }
+
+    /**
+     * 编译后的筛选器
+     */
+    public static final class Compiled {
+        private final int size;
+        private final RowPredicate[] predicates;
+
+        Compiled(int size, RowPredicate[] predicates) {
+            this.size = size;
+            this.predicates = predicates;
+        }
+
+        public int[] apply() {
+            int[] rows = new int[size];
+            int count = 0;
+            RowPredicate[] predicates = this.predicates;
+            for (int row = 0; row < size; row++) {
+                boolean matched = true;
+                for (RowPredicate predicate : predicates) {
+                    if (!predicate.test(row)) {
+                        matched = false;
+                        break;
+                    }
+                }
+                if (matched) {
+                    rows[count++] = row;
+                }
+            }
+            return count == size ? rows : Arrays.copyOf(rows, count);
+        }
+    }
+
+    public static class Builder {
+        private boolean filterDate;
+        private int startDay;
+        private int endDay;
+        private boolean filterPrice;
+        private long minPriceCents;
+        private long maxPriceCents;
+        private boolean filterRating;
+        private int minRating;
+        private int maxRating;
+        private String location;
+        private String tag;
+
+        /**
+         * @param startDay 起始日期（含），自1970-01-01起的天数
+         * @param endDay 结束日期（含）
+         */
+        public Builder dateRange(int startDay, int endDay) {
+            this.filterDate = true;
+            this.startDay = startDay;
+            this.endDay = endDay;
+            return this;
+        }
+
+        /**
+         * @param minPriceCents 最低价格（分，含）
+         * @param maxPriceCents 最高价格（分，含）
+         */
+        public Builder priceRange(long minPriceCents, long maxPriceCents) {
+            this.filterPrice = true;
+            this.minPriceCents = minPriceCents;
+            this.maxPriceCents = maxPriceCents;
+            return this;
+        }
+
+        /**
+         * 评分取整后在范围内
+         */
+        public Builder ratingRange(int minRating, int maxRating) {
+            this.filterRating = true;
+            this.minRating = minRating;
+            this.maxRating = maxRating;
+            return this;
+        }
+
+        /**
+         * 位置包含指定文字，不区分大小写，传空时不筛选
+         */
+        public Builder location(String location) {
+            this.location = location == null || location.isEmpty() ? null : location.toLowerCase(Locale.getDefault());
+            return this;
+        }
+
+        /**
+         * 包含指定标签，传空时不筛选
+         */
+        public Builder tag(String tag) {
+            this.tag = tag == null || tag.isEmpty() ? null : tag;
+            return this;
+        }
+
+        public FoodFilter build() {
+            return new FoodFilter(this);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.tastylog.data;
+
+import android.util.Log;
+
+import com.example.tastylog.model.FoodItem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按时间倒序分页读取本地记录的滑动窗口
+ *
+ * 只在内存中保留至多MAX_PAGES页相邻的记录，向下滚动时在末尾追加更早的一页并丢弃最前面的页，
+ * 向上滚动时反过来。页之间以边界记录为锚点读取，不依赖偏移量，
+ * 中间插入或删除记录时不会重复或漏掉。所有方法都在主线程调用。
+ * 默认从本地数据库读取，也可以传入其他按同样顺序分页的数据源
+ */
+public class FoodPager {
+    private static final String TAG = "FoodPager";
+    public static final int PAGE_SIZE = 50;
+    public static final int MAX_PAGES = 4;
+
+    /**
+     * 窗口内容变化监听器，在主线程回调
+     */
+    public interface Listener {
+        /**
+         * @param window 窗口内的全部记录，按时间倒序，不可修改
+         */
+        void onWindowChanged(List<FoodItem> window);
+    }
+
+    /**
+     * 分页数据源，参数与FoodRepository.loadFoodItemsPage相同，回调在主线程执行
+     */
+    public interface Source {
+        void loadPage(FoodItem anchor, boolean older, boolean inclusive, int limit,
+                      FoodRepository.FoodListCallback callback);
+    }
+
+    private final Source source;
+    private final Listener listener;
+    private final ArrayDeque<List<FoodItem>> pages = new ArrayDeque<>();
+    private boolean hasOlder;
+    private boolean hasNewer;
+    private boolean loading;
+    // 每次刷新加一，丢弃刷新之前发出的翻页结果
+    private int generation;
+
+    public FoodPager(FoodRepository repository, Listener listener) {
+        this(repository::loadFoodItemsPage, listener);
+    }
+
+    public FoodPager(Source source, Listener listener) {
+        this.source = source;
+        this.listener = listener;
+    }
+
+    /**
+     * 数据变化后重新读取当前窗口
+     * 从窗口第一条记录开始读取与当前窗口同样多的记录，滚动位置附近的内容保持不变
+     */
+    public void refresh() {
+        int generation = ++this.generation;
+        FoodItem anchor = hasNewer && !pages.isEmpty() ? pages.peekFirst().get(0) : null;
+        int limit = Math.max(pages.size(), 1) * PAGE_SIZE;
+        loading = true;
+        source.loadPage(anchor, true, true, limit, new FoodRepository.FoodListCallback() {
+            @Override
+            public void onFoodListLoaded(List<FoodItem> items) {
+                if (generation != FoodPager.this.generation) {
+                    return;
+                }
+                loading = false;
+                pages.clear();
+                for (int start = 0; start < items.size(); start += PAGE_SIZE) {
+                    pages.addLast(items.subList(start, Math.min(start + PAGE_SIZE, items.size())));
+                }
+                hasOlder = items.size() == limit;
+                // 锚点记录被删除时窗口会从更早的记录开始，仍需能向上翻页
+                hasNewer = anchor != null;
+                publish();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onLoadFailed(generation, e);
+            }
+        });
+    }
+
+    /**
+     * 在窗口末尾追加更早的一页
+     */
+    public void loadOlder() {
+        if (loading || !hasOlder || pages.isEmpty()) {
+            return;
+        }
+        int generation = this.generation;
+        List<FoodItem> lastPage = pages.peekLast();
+        loading = true;
+        source.loadPage(lastPage.get(lastPage.size() - 1), true, false, PAGE_SIZE,
+                new FoodRepository.FoodListCallback() {
+                    @Override
+                    public void onFoodListLoaded(List<FoodItem> page) {
+                        if (generation != FoodPager.this.generation) {
+                            return;
+                        }
+                        loading = false;
+                        hasOlder = page.size() == PAGE_SIZE;
+                        if (page.isEmpty()) {
+                            return;
+                        }
+                        pages.addLast(page);
+                        if (pages.size() > MAX_PAGES) {
+                            pages.removeFirst();
+                            hasNewer = true;
+                        }
+                        publish();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        onLoadFailed(generation, e);
+                    }
+                });
+    }
+
+    /**
+     * 在窗口开头插入更新的一页
+     */
+    public void loadNewer() {
+        if (loading || !hasNewer || pages.isEmpty()) {
+            return;
+        }
+        int generation = this.generation;
+        loading = true;
+        source.loadPage(pages.peekFirst().get(0), false, false, PAGE_SIZE,
+                new FoodRepository.FoodListCallback() {
+                    @Override
+                    public void onFoodListLoaded(List<FoodItem> page) {
+                        if (generation != FoodPager.this.generation) {
+                            return;
+                        }
+                        loading = false;
+                        hasNewer = page.size() == PAGE_SIZE;
+                        if (page.isEmpty()) {
+                            return;
+                        }
+                        pages.addFirst(page);
+                        if (pages.size() > MAX_PAGES) {
+                            pages.removeLast();
+                            hasOlder = true;
+                        }
+                        publish();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        onLoadFailed(generation, e);
+                    }
+                });
+    }
+
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    public boolean hasNewer() {
+        return hasNewer;
+    }
+
+    private void onLoadFailed(int generation, Exception e) {
+        Log.e(TAG, "读取分页数据失败", e);
+        if (generation == this.generation) {
+            // 下次滚动到边缘时重试
+            loading = false;
+        }
+    }
+
+    private void publish() {
+        List<FoodItem> window = new ArrayList<>(pages.size() * PAGE_SIZE);
+        for (List<FoodItem> page : pages) {
+            window.addAll(page);
+        }
+        listener.onWindowChanged(Collections.unmodifiableList(window));
+    }
+}
@@ -1,37 +1,125 @@
 package com.example.tastylog.data;
 
 import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import com.example.tastylog.AppwriteWrapper;
 import com.example.tastylog.model.FoodItem;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import io.appwrite.models.Document;
+import io.appwrite.exceptions.AppwriteException;
 
 /**
  * 食物数据仓库类
  * 
- * 负责管理食物记录的数据访问
+ * 负责管理食物记录的数据访问。本地数据库是读取的数据来源，
+ * 云端数据在后台同步后写回本地；本地修改立即写入本地数据库，
+ * 再通过待上传队列在后台上传到云端
  */
 public class FoodRepository {
     private static final String TAG = "FoodRepository";
     private static FoodRepository instance;
-    private final Executor executor = Executors.newSingleThreadExecutor();
-    private final List<FoodItem> cachedFoodItems = new ArrayList<>();
+    // 与云端核对已删除记录的最小间隔，增量同步本身拿不到被删除的文档
+    private static final long RECONCILE_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+    // 默认缓存有效期，过期后才在后台与云端同步
+    private static final long DEFAULT_CACHE_TTL_MS = 5 * 60 * 1000L;
+    // 同时上传的修改数上限
+    private static final int MAX_CONCURRENT_WRITES = 3;
+    private static final long WRITE_RETRY_BASE_DELAY_MS = 2000L;
+    private static final long WRITE_RETRY_MAX_DELAY_MS = 5 * 60 * 1000L;
+    private final Executor executor;
+    // 统计筛选在单独的线程执行，不排在数据库读写后面
+    private final Executor queryExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 以下缓存状态都由cacheLock保护。内存中不保留完整的记录列表，只有记录数、内容哈希和汇总
+    private final Object cacheLock = new Object();
+    private String cachedUserId;
+    private int cachedRecordCount;
+    private long cachedContentHash;
+    // 数据版本号，缓存内容变化时加一
+    private long dataVersion;
+    // 统计页面使用的列式快照及其数据版本号，数据变化后释放，需要时再从本地数据库构建
+    private FoodTable cachedTable;
+    private long cachedTableVersion = -1;
+    // 缓存用户按月的消费汇总
+    private final MonthlyAggregates monthlyAggregates = new MonthlyAggregates();
+    // 缓存用户按日、周、月的消费序列
+    private final SpendingRollup spendingRollup = new SpendingRollup();
+    // 每个用户上次同步成功的时间
+    private final Map<String, Long> lastSyncTimes = new HashMap<>();
+    private volatile long cacheTtlMillis = DEFAULT_CACHE_TTL_MS;
+    // 进行中的云端同步，key为用户ID，value为等待这次同步结果的回调
+    private final Map<String, List<SyncWaiter>> inFlightSyncs = new HashMap<>();
+    // 因已有同步在进行而被合并掉的请求数
+    private final AtomicInteger coalescedRequestCount = new AtomicInteger();
     private final AppwriteWrapper appwrite;
+    private final LocalFoodStore localStore;
+    // 正在上传的文档ID，只在executor线程访问
+    private final Set<String> inFlightWrites = new HashSet<>();
+    private final Runnable flushOutboxTask = this::flushOutbox;
+    private final List<FoodListObserver> observers = new CopyOnWriteArrayList<>();
 
     private FoodRepository(Context context) {
-        appwrite = AppwriteWrapper.getInstance();
+        this(new LocalFoodStore(context, FoodDbHelper.DB_NAME));
+
+        // 网络恢复时上传积压的修改
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    flushOutbox();
+                }
+            });
+        }
+        // 上传上次进程退出前没来得及上传的修改
+        flushOutbox();
+    }
+
+    /**
+     * 使用指定的本地存储创建仓库，测试时可传入内存数据库
+     *
+     * @param localStore 本地存储
+     */
+    FoodRepository(LocalFoodStore localStore) {
+        this(localStore, AppwriteWrapper.getInstance(), Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * 使用指定的云端接口和后台线程创建仓库，测试时可以逐个执行后台任务
+     *
+     * @param localStore 本地存储
+     * @param appwrite 云端接口
+     * @param executor 本地数据库读写和同步所在的单线程执行器
+     */
+    @VisibleForTesting
+    public FoodRepository(LocalFoodStore localStore, AppwriteWrapper appwrite, Executor executor) {
+        this.appwrite = appwrite;
+        this.localStore = localStore;
+        this.executor = executor;
     }
 
     /**
@@ -47,6 +135,27 @@ public class FoodRepository {
         return instance;
     }
 
+    /**
+     * 筛选结果回调接口
+     */
+    public interface FilterCallback {
+        /**
+         * @param table 筛选所用的列式快照
+         * @param rows 符合条件的行号
+         * @param stats 符合条件的记录的统计结果
+         * @param dataVersion 列式快照对应的数据版本号
+         * @param rollup 同一数据版本的消费时间序列副本
+         */
+        void onFiltered(FoodTable table, int[] rows, FoodStats stats, long dataVersion, SpendingRollup rollup);
+    }
+
+    /**
+     * 月份汇总回调接口
+     */
+    public interface MonthlySummaryCallback {
+        void onMonthlySummaryLoaded(MonthlySummary summary);
+    }
+
     /**
      * 食物列表数据回调接口
      */
@@ -55,6 +164,25 @@ public class FoodRepository {
         void onError(Exception e);
     }
 
+    /**
+     * 加载和同步结果回调接口
+     * 回调只表示本地数据已可读取，记录本身用loadFoodItemsPage、loadAllFoodItems或getFoodTable读取
+     */
+    public interface SyncCallback {
+        /**
+         * 本地数据已可读取，或同步后数据发生了变化
+         */
+        void onLoaded();
+        void onError(Exception e);
+
+        /**
+         * 本地没有数据时，同步过程中每一页写入本地数据库后回调一次
+         * 需要尽快渲染首屏的页面可以覆盖此方法并用loadFoodItemsPage读取，全部加载完成后仍会回调onLoaded
+         */
+        default void onPageLoaded() {
+        }
+    }
+
     /**
      * 单个食物记录回调接口
      */
@@ -64,252 +192,861 @@ public class FoodRepository {
     }
 
     /**
-     * 获取所有食物记录
-     * 从Appwrite云端获取当前用户的所有食物记录
+     * 食物列表变化观察者，所有方法都在主线程回调
+     */
+    public interface FoodListObserver {
+        /**
+         * 食物记录发生变化，包括本地修改、同步结果、回滚和退出登录
+         * 需要记录的页面从本地数据库重新读取，getDataVersion已是变化后的版本
+         */
+        void onFoodListChanged();
+
+        /**
+         * 服务端拒绝了一次本地修改，列表已回滚
+         *
+         * @param foodItem 被拒绝的记录
+         * @param e 服务端返回的错误
+         */
+        default void onWriteRejected(FoodItem foodItem, Exception e) {
+        }
+    }
+
+    public void addObserver(FoodListObserver observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(FoodListObserver observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * 等待同步结果的调用方
+     */
+    private static class SyncWaiter {
+        final SyncCallback callback;
+        // 已经交给调用方的数据版本，没有交过数据时为-1
+        final long servedVersion;
+
+        SyncWaiter(SyncCallback callback, long servedVersion) {
+            this.callback = callback;
+            this.servedVersion = servedVersion;
+        }
+    }
+
+    /**
+     * 设置缓存有效期，缓存比有效期新时syncFoodItems不再访问云端
+     *
+     * @param ttlMillis 有效期（毫秒），0表示每次都在后台同步
+     */
+    public void setCacheTtl(long ttlMillis) {
+        cacheTtlMillis = ttlMillis;
+    }
+
+    /**
+     * 获取当前数据版本号，缓存内容每变化一次加一
+     *
+     * @return 数据版本号
+     */
+    public long getDataVersion() {
+        synchronized (cacheLock) {
+            return dataVersion;
+        }
+    }
+
+    /**
+     * 获取当前数据的列式快照，供统计页面扫描
+     * 数据版本变化后第一次调用时从本地数据库重建，之后直接返回同一个快照。
+     * 会读取本地数据库，不要在主线程调用
      *
-     * @param callback 数据加载回调
+     * @return 列式快照，没有登录时为空表
      */
-    public void getAllFoodItems(FoodListCallback callback) {
+    public FoodTable getFoodTable() {
+        String userId;
+        long version;
+        synchronized (cacheLock) {
+            if (cachedTable != null && cachedTableVersion == dataVersion) {
+                return cachedTable;
+            }
+            userId = cachedUserId;
+            version = dataVersion;
+        }
+        // 在锁外读取和构建，读到的列表构建完即丢弃，只保留列式快照
+        FoodTable table = userId == null ? FoodTable.EMPTY : FoodTable.build(localStore.getFoodItems(userId));
+        synchronized (cacheLock) {
+            if (version == dataVersion) {
+                cachedTable = table;
+                cachedTableVersion = version;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 获取当前用户某个月的消费汇总
+     * 内存中已有该用户的数据时在当前线程直接回调；
+     * 否则在后台读取本地数据库中保存的汇总，不必等待记录列表加载，在主线程回调
+     *
+     * @param yearMonth 年月，如202503
+     * @param callback 汇总回调
+     */
+    public void getMonthlySummary(int yearMonth, MonthlySummaryCallback callback) {
+        String userId = appwrite.getCurrentUserId();
+        if (TextUtils.isEmpty(userId)) {
+            callback.onMonthlySummaryLoaded(MonthlySummary.empty(yearMonth));
+            return;
+        }
+        MonthlySummary summary = null;
+        synchronized (cacheLock) {
+            if (userId.equals(cachedUserId)) {
+                summary = monthlyAggregates.get(yearMonth);
+            }
+        }
+        if (summary != null) {
+            callback.onMonthlySummaryLoaded(summary);
+            return;
+        }
+        executor.execute(() -> {
+            MonthlySummary saved = null;
+            try {
+                saved = localStore.getMonthlySummary(userId, yearMonth);
+            } catch (Exception e) {
+                Log.w(TAG, "读取月份汇总失败: " + e.getMessage());
+            }
+            MonthlySummary result = saved != null ? saved : MonthlySummary.empty(yearMonth);
+            mainHandler.post(() -> callback.onMonthlySummaryLoaded(result));
+        });
+    }
+
+    /**
+     * 在后台线程对当前缓存的列式快照执行筛选，并并行统计筛选出的记录
+     *
+     * @param filter 筛选条件
+     * @param callback 筛选结果回调，在主线程执行
+     */
+    public void filterFoodItems(FoodFilter filter, FilterCallback callback) {
+        queryExecutor.execute(() -> {
+            FilterSource source = getFilterSource();
+            int[] rows = filter.apply(source.table);
+            FoodStats stats = FoodAggregator.aggregate(source.table, rows);
+            mainHandler.post(() -> callback.onFiltered(source.table, rows, stats, source.version, source.rollup));
+        });
+    }
+
+    /**
+     * 同一数据版本的列式快照和消费序列
+     */
+    private static class FilterSource {
+        final FoodTable table;
+        final long version;
+        final SpendingRollup rollup;
+
+        FilterSource(FoodTable table, long version, SpendingRollup rollup) {
+            this.table = table;
+            this.version = version;
+            this.rollup = rollup;
+        }
+    }
+
+    /**
+     * 获取当前数据版本的列式快照和消费序列副本，构建快照期间数据又变化时重新获取
+     */
+    private FilterSource getFilterSource() {
+        while (true) {
+            FoodTable table = getFoodTable();
+            synchronized (cacheLock) {
+                if (table == cachedTable && cachedTableVersion == dataVersion) {
+                    return new FilterSource(table, dataVersion, spendingRollup.copy());
+                }
+            }
+        }
+    }
+
+    /**
+     * 内存中是否已有可立即显示的数据，页面据此决定是否显示加载动画
+     *
+     * @return 有缓存数据时返回true
+     */
+    public boolean hasCachedFoodItems() {
+        synchronized (cacheLock) {
+            return cachedRecordCount > 0;
+        }
+    }
+
+    /**
+     * 加载当前用户的食物记录并按需与云端同步
+     * 内存缓存或本地数据库中有数据时立即回调onLoaded；超过缓存有效期时再在后台
+     * 从Appwrite云端同步当前用户的记录，同步完成后写回本地，
+     * 只有数据确实发生变化时才再次回调onLoaded。
+     * 离线时只使用本地数据。
+     * 同一用户已有同步在进行时不会再发起请求，而是等待那次同步的结果
+     *
+     * @param callback 加载结果回调，在主线程执行
+     */
+    public void syncFoodItems(SyncCallback callback) {
         executor.execute(() -> {
             try {
                 // 获取当前用户ID
-                String userId = AppwriteWrapper.getInstance().getCurrentUserId();
+                String userId = appwrite.getCurrentUserId();
                 
-                // 如果没有用户ID,返回空列表
+                // 没有登录时清空缓存，页面读到的是空数据
                 if (TextUtils.isEmpty(userId)) {
-                    callback.onFoodListLoaded(new ArrayList<>());
+                    clearCache();
+                    mainHandler.post(callback::onLoaded);
                     return;
                 }
+
+                // 内存中没有这个用户的数据时读取一次本地数据库，重建计数、哈希和汇总
+                long servedVersion;
+                if (!isCached(userId)) {
+                    servedVersion = updateCache(userId, localStore.getFoodItems(userId));
+                } else {
+                    servedVersion = getDataVersion();
+                }
+                boolean hasLocalData = hasCachedFoodItems();
+                if (hasLocalData) {
+                    mainHandler.post(callback::onLoaded);
+
+                    // 快照仍在有效期内，不访问云端
+                    if (!isCacheExpired(userId)) {
+                        return;
+                    }
+                } else {
+                    servedVersion = -1;
+                }
                 
-                // 从Appwrite获取数据
-                fetchFoodItemsFromAppwrite(userId, callback);
+                // 已有同步在进行时直接加入等待，共享同一次请求的结果
+                synchronized (inFlightSyncs) {
+                    List<SyncWaiter> waiters = inFlightSyncs.get(userId);
+                    if (waiters != null) {
+                        waiters.add(new SyncWaiter(callback, servedVersion));
+                        Log.d(TAG, "已有同步进行中，合并本次请求，累计合并" + coalescedRequestCount.incrementAndGet() + "次");
+                        return;
+                    }
+                    waiters = new ArrayList<>();
+                    waiters.add(new SyncWaiter(callback, servedVersion));
+                    inFlightSyncs.put(userId, waiters);
+                }
+                
+                // 在后台从Appwrite同步数据，本地已有数据时只拉取水位线之后变更的文档
+                try {
+                    String watermark = hasLocalData ? localStore.getSyncWatermark(userId) : null;
+                    fetchFoodItemsFromAppwrite(userId, watermark, hasLocalData);
+                } catch (Exception e) {
+                    failSync(userId, e, hasLocalData);
+                }
             } catch (Exception e) {
                 Log.e(TAG, "Error loading food items", e);
-                callback.onError(e);
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    /**
+     * 从本地数据库读取当前用户的全部食物记录，不访问云端
+     * 只给需要全部记录的页面（如地图）使用，返回的列表不在仓库中缓存
+     *
+     * @param callback 按时间倒序的完整列表，在主线程执行
+     */
+    public void loadAllFoodItems(FoodListCallback callback) {
+        executor.execute(() -> {
+            try {
+                String userId = appwrite.getCurrentUserId();
+                List<FoodItem> foodItems = TextUtils.isEmpty(userId) ? new ArrayList<>()
+                        : Collections.unmodifiableList(localStore.getFoodItems(userId));
+                mainHandler.post(() -> callback.onFoodListLoaded(foodItems));
+            } catch (Exception e) {
+                Log.e(TAG, "读取本地数据失败", e);
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    /**
+     * 从本地数据库读取一页食物记录，不访问云端
+     * 与本地写入在同一线程执行，读到的总是已写入的最新数据
+     *
+     * @param anchor 锚点记录，为null时从最新的记录开始
+     * @param older true读取比锚点更早的记录，false读取比锚点更新的记录
+     * @param inclusive 是否包含锚点本身
+     * @param limit 最多读取的条数
+     * @param callback 按时间倒序的一页记录，在主线程执行
+     */
+    public void loadFoodItemsPage(@Nullable FoodItem anchor, boolean older, boolean inclusive, int limit,
+                                  FoodListCallback callback) {
+        executor.execute(() -> {
+            try {
+                String userId = appwrite.getCurrentUserId();
+                List<FoodItem> page = TextUtils.isEmpty(userId) ? new ArrayList<>()
+                        : localStore.getFoodItemsPage(userId, anchor, older, inclusive, limit);
+                mainHandler.post(() -> callback.onFoodListLoaded(page));
+            } catch (Exception e) {
+                Log.e(TAG, "读取分页数据失败", e);
+                mainHandler.post(() -> callback.onError(e));
             }
         });
     }
 
     /**
      * 添加新的食物记录
+     * 立即写入本地数据库并加入待上传队列，回调后在后台上传到云端。
+     * 文档ID在本地生成，上传失败重试时不会重复创建
      *
      * @param foodItem 要添加的食物记录
-     * @param callback 添加结果回调
+     * @param callback 本地保存结果回调，在主线程执行
      */
     public void addFoodItem(FoodItem foodItem, FoodItemCallback callback) {
+        if (TextUtils.isEmpty(foodItem.getDocumentId())) {
+            foodItem.setDocumentId(generateDocumentId());
+        }
+        if (TextUtils.isEmpty(foodItem.getId())) {
+            foodItem.setId(generateDocumentId());
+        }
+        saveLocally(foodItem, OutboxEntry.OP_CREATE, callback);
+    }
+
+    /**
+     * 更新食物记录
+     * 立即写入本地数据库并加入待上传队列，回调后在后台上传到云端
+     *
+     * @param foodItem 修改后的食物记录，必须带有文档ID
+     * @param callback 本地保存结果回调，在主线程执行
+     */
+    public void updateFoodItem(FoodItem foodItem, FoodItemCallback callback) {
+        saveLocally(foodItem, OutboxEntry.OP_UPDATE, callback);
+    }
+
+    /**
+     * 删除食物记录
+     * 立即从本地数据库删除并加入待上传队列，回调后在后台从云端删除
+     *
+     * @param foodItem 要删除的食物记录，必须带有文档ID
+     * @param callback 本地删除结果回调，在主线程执行
+     */
+    public void deleteFoodItem(FoodItem foodItem, FoodItemCallback callback) {
+        saveLocally(foodItem, OutboxEntry.OP_DELETE, callback);
+    }
+
+    /**
+     * 在executor线程写入本地数据库和待上传队列，写入成功后再把修改应用到内存快照并通知观察者
+     */
+    private void saveLocally(FoodItem foodItem, String op, FoodItemCallback callback) {
+        String userId = appwrite.getCurrentUserId();
+        if (TextUtils.isEmpty(userId) || TextUtils.isEmpty(foodItem.getDocumentId())) {
+            Exception e = new IllegalStateException(TextUtils.isEmpty(userId) ? "用户未登录" : "美食记录ID不能为空");
+            mainHandler.post(() -> callback.onError(e));
+            return;
+        }
+
         executor.execute(() -> {
+            FoodItem oldItem;
             try {
-                // 转换为JSON格式
-                JSONObject json = foodItemToJson(foodItem);
-                
-                // 更新本地缓存
-                cachedFoodItems.add(foodItem);
-                
-                callback.onSuccess(foodItem);
+                if (OutboxEntry.OP_DELETE.equals(op)) {
+                    oldItem = localStore.deleteWithOutbox(userId, foodItem.getDocumentId());
+                } else {
+                    oldItem = localStore.saveWithOutbox(userId, foodItem, op);
+                }
             } catch (Exception e) {
-                Log.e(TAG, "Error adding food item", e);
-                callback.onError(e);
+                Log.e(TAG, "Error saving food item", e);
+                mainHandler.post(() -> callback.onError(e));
+                return;
             }
+            // 排在这次写入之前的同步结果已经发布，之后再应用这次修改，缓存与本地数据库一致
+            applyToSnapshot(userId, oldItem, OutboxEntry.OP_DELETE.equals(op) ? null : foodItem);
+            mainHandler.post(() -> callback.onSuccess(foodItem));
+            flushOutbox();
         });
     }
 
     /**
-     * 将FoodItem对象转换为JSON格式
-     * 转换后的JSON结构匹配Appwrite数据库要求
+     * 把一条记录的新旧内容应用到缓存的计数、内容哈希和汇总，并通知观察者，需要在executor线程调用
+     * 只加减新旧两条记录，不读取也不复制完整列表
      *
-     * @param foodItem 要转换的食物记录
-     * @return 转换后的JSON对象
-     * @throws JSONException JSON转换异常
-     */
-    private JSONObject foodItemToJson(FoodItem foodItem) throws JSONException {
-        JSONObject json = new JSONObject();
-        
-        // 设置基本字段
-        json.put("food_id", foodItem.getId());
-        json.put("title", foodItem.getTitle());
-        json.put("time", foodItem.getTime());
-        json.put("rating", foodItem.getRating());
-        
-        // 处理价格字段 - 移除货币符号并转换为数值
+     * @param oldItem 修改前的记录，新建时为null
+     * @param newItem 修改后的记录，删除时为null
+     */
+    private void applyToSnapshot(String userId, @Nullable FoodItem oldItem, @Nullable FoodItem newItem) {
+        List<MonthlySummary> changedSummaries;
+        synchronized (cacheLock) {
+            if (!userId.equals(cachedUserId)) {
+                return;
+            }
+            if (oldItem != null) {
+                cachedRecordCount--;
+                cachedContentHash -= itemHash(oldItem);
+            }
+            if (newItem != null) {
+                cachedRecordCount++;
+                cachedContentHash += itemHash(newItem);
+            }
+            // 只更新新旧记录所在的月份
+            changedSummaries = monthlyAggregates.update(oldItem, newItem);
+            spendingRollup.update(oldItem, newItem);
+            dataVersion++;
+            cachedTable = null;
+        }
+        saveMonthlySummaries(userId, changedSummaries, false);
+        notifyObservers();
+    }
+
+    private void saveMonthlySummaries(String userId, Collection<MonthlySummary> summaries, boolean replaceAll) {
         try {
-            String priceStr = foodItem.getPrice().replaceAll("[^0-9.]", "");
-            double priceValue = Double.parseDouble(priceStr);
-            json.put("price", priceValue);
-        } catch (NumberFormatException e) {
-            json.put("price", foodItem.getPrice());
+            localStore.saveMonthlySummaries(userId, summaries, replaceAll);
+        } catch (Exception e) {
+            // 汇总可以由记录重建，保存失败不影响记录本身
+            Log.w(TAG, "保存月份汇总失败: " + e.getMessage());
+        }
+    }
+
+    private void notifyObservers() {
+        if (observers.isEmpty()) {
+            return;
+        }
+        mainHandler.post(() -> {
+            for (FoodListObserver observer : observers) {
+                observer.onFoodListChanged();
+            }
+        });
+    }
+
+    /**
+     * 上传待上传队列中已到重试时间的修改，同时上传的数量不超过MAX_CONCURRENT_WRITES
+     * 可以在任意线程调用
+     */
+    public void flushOutbox() {
+        executor.execute(() -> {
+            String userId = appwrite.getCurrentUserId();
+            if (TextUtils.isEmpty(userId)) {
+                return;
+            }
+            int slots = MAX_CONCURRENT_WRITES - inFlightWrites.size();
+            if (slots > 0) {
+                // 多取出正在上传的条数，跳过它们后仍能填满空位
+                List<OutboxEntry> entries = localStore.getDueOutboxEntries(userId, System.currentTimeMillis(),
+                        MAX_CONCURRENT_WRITES + inFlightWrites.size());
+                for (OutboxEntry entry : entries) {
+                    if (slots == 0) {
+                        break;
+                    }
+                    if (inFlightWrites.add(entry.documentId)) {
+                        slots--;
+                        // 此后再删除刚新建的记录时需要上传删除，不能直接丢弃
+                        localStore.markOutboxEntrySent(entry);
+                        sendOutboxEntry(entry);
+                    }
+                }
+            }
+            scheduleOutboxRetry(userId);
+        });
+    }
+
+    private void sendOutboxEntry(OutboxEntry entry) {
+        FoodItem item = entry.item;
+        if (!OutboxEntry.OP_DELETE.equals(entry.op) && item == null) {
+            // 本地记录已不存在，没有可上传的内容
+            onOutboxEntrySent(entry, null);
+            return;
+        }
+        Log.d(TAG, "上传本地修改: " + entry.op + " " + entry.documentId + "，第" + (entry.attempts + 1) + "次");
+        switch (entry.op) {
+            case OutboxEntry.OP_CREATE:
+                appwrite.addFoodItem(entry.userId, entry.documentId, item.getId(), item.getTitle(), item.getTime(),
+                        item.getImageUrl(), item.getRating(), item.getPriceCents() / 100.0,
+                        TextUtils.join(",", item.getTags()), item.getContent(), item.getLocation(),
+                        document -> onOutboxEntrySent(entry, null),
+                        error -> onOutboxEntrySent(entry, error));
+                break;
+            case OutboxEntry.OP_UPDATE:
+                appwrite.updateFoodItem(entry.userId, entry.documentId, item.getTitle(), item.getTime(),
+                        item.getImageUrl(), item.getRating(), item.getPriceCents() / 100.0,
+                        TextUtils.join(",", item.getTags()), item.getContent(), item.getLocation(),
+                        document -> onOutboxEntrySent(entry, null),
+                        error -> onOutboxEntrySent(entry, error));
+                break;
+            default:
+                appwrite.deleteFoodItem(entry.userId, entry.documentId,
+                        () -> onOutboxEntrySent(entry, null),
+                        error -> onOutboxEntrySent(entry, error));
+                break;
+        }
+    }
+
+    /**
+     * 一条修改上传结束，成功时移出队列，失败时按指数退避安排重试
+     */
+    private void onOutboxEntrySent(OutboxEntry entry, Exception error) {
+        executor.execute(() -> {
+            inFlightWrites.remove(entry.documentId);
+            try {
+                if (error == null || isAlreadyApplied(entry, error)) {
+                    localStore.completeOutboxEntry(entry);
+                } else if (isRejected(error)) {
+                    Log.e(TAG, "服务端拒绝本地修改，回滚: " + entry.op + " " + entry.documentId, error);
+                    if (localStore.rollbackOutboxEntry(entry)) {
+                        refreshCacheFromLocal(entry.userId);
+                        FoodItem rejected = entry.item != null ? entry.item : entry.base;
+                        if (rejected != null) {
+                            mainHandler.post(() -> {
+                                for (FoodListObserver observer : observers) {
+                                    observer.onWriteRejected(rejected, error);
+                                }
+                            });
+                        }
+                    }
+                } else {
+                    // 网络等临时错误一直重试，不丢弃本地修改
+                    long delay = Math.min(WRITE_RETRY_BASE_DELAY_MS << Math.min(entry.attempts, 10),
+                            WRITE_RETRY_MAX_DELAY_MS);
+                    Log.w(TAG, "上传本地修改失败，" + delay + "ms后重试: " + error.getMessage());
+                    localStore.rescheduleOutboxEntry(entry, System.currentTimeMillis() + delay);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "更新待上传队列失败", e);
+            }
+            flushOutbox();
+        });
+    }
+
+    /**
+     * 安排在最近一条修改到达重试时间时再次上传
+     * 需要在executor线程调用
+     */
+    private void scheduleOutboxRetry(String userId) {
+        mainHandler.removeCallbacks(flushOutboxTask);
+        long nextAttemptAt = localStore.getNextOutboxAttemptTime(userId);
+        long delay = nextAttemptAt - System.currentTimeMillis();
+        if (nextAttemptAt > 0 && delay > 0) {
+            mainHandler.postDelayed(flushOutboxTask, delay);
         }
-        
-        // 处理标签 - 选择第一个标签或连接所有标签
-        List<String> tags = foodItem.getTags();
-        if (tags != null && !tags.isEmpty()) {
-            json.put("tag", tags.get(0));
-        } else {
-            json.put("tag", "");
+    }
+
+    /**
+     * 云端已经是目标状态：之前的创建其实已成功，或要删除的文档已不存在
+     */
+    private static boolean isAlreadyApplied(OutboxEntry entry, Exception error) {
+        int code = getErrorCode(error);
+        return (OutboxEntry.OP_CREATE.equals(entry.op) && code == 409)
+                || (OutboxEntry.OP_DELETE.equals(entry.op) && code == 404);
+    }
+
+    /**
+     * 服务端明确拒绝了这次修改，重试也不会成功，需要回滚
+     */
+    private static boolean isRejected(Exception error) {
+        int code = getErrorCode(error);
+        return code >= 400 && code < 500 && code != 401 && code != 408 && code != 429;
+    }
+
+    private static int getErrorCode(Exception error) {
+        if (error instanceof AppwriteException && ((AppwriteException) error).getCode() != null) {
+            return ((AppwriteException) error).getCode();
         }
-        
-        // 设置图片URL和用户ID
-        json.put("img_url", foodItem.getImageUrl());
-        json.put("user_id", AppwriteWrapper.getInstance().getCurrentUserId());
-        
-        return json;
+        return 0;
+    }
+
+    /**
+     * 本地修改后重新读取本地数据库更新内存缓存
+     * 需要在executor线程调用
+     */
+    private void refreshCacheFromLocal(String userId) {
+        updateCache(userId, localStore.getFoodItems(userId));
+    }
+
+    /**
+     * 生成文档ID，满足Appwrite对自定义ID的要求（不超过36个字母数字）
+     */
+    private static String generateDocumentId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * 获取因已有同步在进行而被合并掉的重复请求数
+     *
+     * @return 累计合并的请求数
+     */
+    public int getCoalescedRequestCount() {
+        return coalescedRequestCount.get();
     }
 
     /**
      * 从Appwrite获取用户的食物记录
+     * 每一页到达后都立即写入本地数据库。watermark为空时全量拉取，最后删除云端没有的本地记录；
+     * 否则只拉取$updatedAt不早于水位线的文档，超过核对间隔时再拉取一次文档ID列表删除云端已不存在的记录
      *
      * @param userId 用户ID
-     * @param callback 数据加载回调
+     * @param watermark 增量同步水位线，为null时全量同步
+     * @param hasLocalData 是否已经用本地数据回调过，此时不再逐页回调，同步失败也不报错
      */
-    private void fetchFoodItemsFromAppwrite(String userId, FoodListCallback callback) {
-        AppwriteWrapper.getInstance().getUserFoodItems(
+    private void fetchFoodItemsFromAppwrite(String userId, String watermark, boolean hasLocalData) {
+        // 全量同步时记录云端现存的文档ID，最后删除本地多出的记录，不必在内存中攒下全部记录
+        Set<String> remoteIds = new HashSet<>();
+        int[] fetchedCount = {0};
+        String[] maxUpdatedAt = {watermark};
+        appwrite.getUserFoodItems(
             userId,
-            documents -> {
+            watermark,
+            (page, isLastPage) -> {
+                // 在IO线程上回调，响应体已由FoodDocumentDecoder直接解析为FoodItem
                 try {
-                    List<FoodItem> foodItems = new ArrayList<>();
-                    for (Document<Map<String, Object>> document : documents) {
-                        // 添加调试日志
-                        Map<String, Object> data = document.getData();
-                        Log.d(TAG, "Document ID: " + document.getId());
-                        Log.d(TAG, "Document Data: " + data.toString());
-                        if (data.containsKey("rating")) {
-                            Log.d(TAG, "Rating: " + data.get("rating") + " (Class: " + data.get("rating").getClass().getName() + ")");
-                        }
-                        if (data.containsKey("price")) {
-                            Log.d(TAG, "Price: " + data.get("price") + " (Class: " + data.get("price").getClass().getName() + ")");
+                    if (watermark == null) {
+                        for (FoodItem item : page.items) {
+                            remoteIds.add(item.getDocumentId());
                         }
-                        
-                        // 转换为FoodItem对象
-                        FoodItem item = documentToFoodItem(document);
-                        foodItems.add(item);
-                        
-                        // 添加转换后的日志
-                        Log.d(TAG, "Converted FoodItem: " + item.getTitle() + ", Rating: " + item.getRating() + ", Price: " + item.getPrice());
                     }
-                    
-                    // 更新缓存并回调
-                    cachedFoodItems.clear();
-                    cachedFoodItems.addAll(foodItems);
-                    callback.onFoodListLoaded(foodItems);
+                    fetchedCount[0] += page.items.size();
+                    // $updatedAt是统一格式的ISO 8601时间，可以直接按字符串比较
+                    if (page.maxUpdatedAt != null
+                            && (maxUpdatedAt[0] == null || page.maxUpdatedAt.compareTo(maxUpdatedAt[0]) > 0)) {
+                        maxUpdatedAt[0] = page.maxUpdatedAt;
+                    }
+                    int count = fetchedCount[0];
+                    String pageMaxUpdatedAt = maxUpdatedAt[0];
+
+                    // 每页到达后立即写入本地数据库，分页读取的列表可以马上看到这一页
+                    executor.execute(() -> {
+                        try {
+                            localStore.upsertAll(userId, page.items);
+                        } catch (Exception e) {
+                            Log.e(TAG, "写入本地数据库失败", e);
+                        }
+
+                        if (!isLastPage) {
+                            // 本地没有数据时每页都通知调用方，不必等待全部历史记录
+                            if (!hasLocalData) {
+                                List<SyncWaiter> waiters = getSyncWaiters(userId);
+                                mainHandler.post(() -> {
+                                    for (SyncWaiter waiter : waiters) {
+                                        waiter.callback.onPageLoaded();
+                                    }
+                                });
+                            }
+                            return;
+                        }
+
+                        Log.d(TAG, (watermark == null ? "全量" : "增量") + "同步完成，拉取到" + count + "条记录");
+                        long lastReconcile = localStore.getLastReconcileTime(userId);
+                        try {
+                            if (watermark == null) {
+                                localStore.deleteMissing(userId, remoteIds);
+                                lastReconcile = System.currentTimeMillis();
+                            }
+                            localStore.saveSyncState(userId, pageMaxUpdatedAt, lastReconcile);
+                        } catch (Exception e) {
+                            Log.e(TAG, "写入本地数据库失败", e);
+                        }
+
+                        if (System.currentTimeMillis() - lastReconcile > RECONCILE_INTERVAL_MS) {
+                            reconcileDeletedItems(userId, pageMaxUpdatedAt);
+                        } else {
+                            publishLocalItems(userId);
+                        }
+                    });
                 } catch (Exception e) {
                     Log.e(TAG, "处理Appwrite响应时发生错误", e);
-                    callback.onError(e);
+                    failSync(userId, e, hasLocalData);
                 }
             },
-            error -> {
-                Log.e(TAG, "Error fetching food items from Appwrite", error);
-                callback.onError(error);
-            }
+            error -> failSync(userId, error, hasLocalData)
         );
     }
 
     /**
-     * 将Appwrite文档转换为FoodItem对象
+     * 拉取云端现存的文档ID，删除本地多出的记录（云端删除的墓碑处理）
      *
-     * @param document Appwrite文档对象
-     * @return 转换后的FoodItem对象
-     */
-    private FoodItem documentToFoodItem(Document<Map<String, Object>> document) {
-        FoodItem item = new FoodItem();
-        Map<String, Object> data = document.getData();
-        
-        // 设置文档ID和食物ID
-        item.setDocumentId(document.getId());
-        
-        // 设置food_id - 存在时使用，不存在时才用document.getId()
-        if (data.containsKey("food_id")) {
-            item.setId((String) data.get("food_id"));
-        } else {
-            item.setId(document.getId());
-        }
-        
-        // 设置标题
-        if (data.containsKey("title")) {
-            item.setTitle((String) data.get("title"));
-        }
-        
-        // 设置时间
-        if (data.containsKey("time")) {
-            item.setTime((String) data.get("time"));
-        }
-        
-        // 设置评分 - 使用正确的字段名
-        if (data.containsKey("rating")) {
-            Object ratingObj = data.get("rating");
-            if (ratingObj instanceof Double) {
-                item.setRating(((Double) ratingObj).floatValue());
-            } else if (ratingObj instanceof Integer) {
-                item.setRating(((Integer) ratingObj).floatValue());
-            } else if (ratingObj instanceof Long) {
-                item.setRating(((Long) ratingObj).floatValue());
-            } else if (ratingObj instanceof String) {
+     * @param userId 用户ID
+     * @param watermark 当前水位线
+     */
+    private void reconcileDeletedItems(String userId, String watermark) {
+        appwrite.getUserFoodItemIds(
+            userId,
+            remoteIds -> executor.execute(() -> {
                 try {
-                    item.setRating(Float.parseFloat((String) ratingObj));
-                } catch (NumberFormatException e) {
-                    item.setRating(0.0f); // 默认值
+                    int removed = localStore.deleteMissing(userId, remoteIds);
+                    localStore.saveSyncState(userId, watermark, System.currentTimeMillis());
+                    Log.d(TAG, "核对云端删除记录完成，移除" + removed + "条");
+                } catch (Exception e) {
+                    Log.e(TAG, "删除本地过期记录失败", e);
                 }
-            } else {
-                item.setRating(0.0f); // 默认值
+                publishLocalItems(userId);
+            }),
+            error -> {
+                Log.w(TAG, "核对云端删除记录失败: " + error.getMessage());
+                executor.execute(() -> publishLocalItems(userId));
             }
-        } else {
-            item.setRating(0.0f); // 默认值
-        }
-        
-        // 设置价格 - 添加货币符号
-        if (data.containsKey("price")) {
-            Object priceObj = data.get("price");
-            if (priceObj instanceof Double) {
-                item.setPrice("¥" + priceObj);
-            } else if (priceObj instanceof Integer) {
-                item.setPrice("¥" + priceObj);
-            } else if (priceObj instanceof Long) {
-                item.setPrice("¥" + priceObj);
-            } else if (priceObj instanceof String) {
-                if (!((String) priceObj).startsWith("¥")) {
-                    item.setPrice("¥" + priceObj);
-                } else {
-                    item.setPrice((String) priceObj);
+        );
+    }
+
+    /**
+     * 读取本地数据库中的最新记录，更新缓存并在主线程回调等待本次同步的调用方，
+     * 调用方已拿到的数据版本与最新版本相同时不再回调
+     * 需要在executor线程调用
+     *
+     * @param userId 用户ID
+     */
+    private void publishLocalItems(String userId) {
+        long version = updateCache(userId, localStore.getFoodItems(userId));
+        synchronized (cacheLock) {
+            lastSyncTimes.put(userId, System.currentTimeMillis());
+        }
+        List<SyncWaiter> waiters = finishSync(userId);
+        mainHandler.post(() -> {
+            for (SyncWaiter waiter : waiters) {
+                if (waiter.servedVersion == version) {
+                    Log.d(TAG, "同步后数据未变化，跳过回调");
+                    continue;
                 }
-            } else {
-                item.setPrice("¥0"); // 默认值
+                waiter.callback.onLoaded();
             }
-        } else {
-            item.setPrice("¥0"); // 默认值
-        }
-        
-        // 设置标签 - 数据库中是单个tag字段
-        if (data.containsKey("tag")) {
-            String tag = (String) data.get("tag");
-            if (!TextUtils.isEmpty(tag)) {
-                // 如果tag包含逗号，则分割为多个标签
-                if (tag.contains(",")) {
-                    String[] tags = tag.split(",");
-                    for (String t : tags) {
-                        item.getTags().add(t.trim());
-                    }
-                } else {
-                    item.getTags().add(tag);
-                }
+        });
+        // 能同步说明网络可用，顺便上传积压的修改
+        flushOutbox();
+    }
+
+    /**
+     * 同步失败时通知所有等待的调用方
+     *
+     * @param userId 用户ID
+     * @param error 错误
+     * @param hasLocalData 是否已经用本地数据回调过
+     */
+    private void failSync(String userId, Exception error, boolean hasLocalData) {
+        List<SyncWaiter> waiters = finishSync(userId);
+        if (hasLocalData) {
+            // 已经显示了本地数据，离线时不打断页面
+            Log.w(TAG, "同步云端数据失败，继续使用本地数据: " + error.getMessage());
+            return;
+        }
+        Log.e(TAG, "Error fetching food items from Appwrite", error);
+        mainHandler.post(() -> {
+            for (SyncWaiter waiter : waiters) {
+                waiter.callback.onError(error);
+            }
+        });
+    }
+
+    /**
+     * 获取正在等待同步结果的调用方快照
+     *
+     * @param userId 用户ID
+     * @return 调用方列表
+     */
+    private List<SyncWaiter> getSyncWaiters(String userId) {
+        synchronized (inFlightSyncs) {
+            List<SyncWaiter> waiters = inFlightSyncs.get(userId);
+            return waiters != null ? new ArrayList<>(waiters) : new ArrayList<>();
+        }
+    }
+
+    /**
+     * 结束一次同步，之后的请求会重新发起同步
+     *
+     * @param userId 用户ID
+     * @return 等待这次同步结果的调用方
+     */
+    private List<SyncWaiter> finishSync(String userId) {
+        synchronized (inFlightSyncs) {
+            List<SyncWaiter> waiters = inFlightSyncs.remove(userId);
+            return waiters != null ? waiters : new ArrayList<>();
+        }
+    }
+
+    /**
+     * 内存中是否已有指定用户的数据
+     *
+     * @param userId 用户ID
+     * @return 缓存属于该用户且有记录时返回true
+     */
+    private boolean isCached(String userId) {
+        synchronized (cacheLock) {
+            return userId.equals(cachedUserId) && cachedRecordCount > 0;
+        }
+    }
+
+    /**
+     * 缓存是否已超过有效期
+     *
+     * @param userId 用户ID
+     * @return 从未同步过或已过期时返回true
+     */
+    private boolean isCacheExpired(String userId) {
+        synchronized (cacheLock) {
+            Long lastSync = lastSyncTimes.get(userId);
+            return lastSync == null || System.currentTimeMillis() - lastSync >= cacheTtlMillis;
+        }
+    }
+
+    /**
+     * 用本地数据库中的完整记录更新缓存的计数、内容哈希和汇总，内容哈希变化时数据版本号加一并通知观察者
+     * 列表只在这里遍历一次，不在内存中保留
+     *
+     * @param userId 用户ID
+     * @param foodItems 最新的记录列表
+     * @return 更新后的数据版本号
+     */
+    private long updateCache(String userId, List<FoodItem> foodItems) {
+        long contentHash = computeContentHash(foodItems);
+        boolean changed;
+        long version;
+        Collection<MonthlySummary> summaries = null;
+        synchronized (cacheLock) {
+            changed = !userId.equals(cachedUserId) || contentHash != cachedContentHash;
+            if (changed) {
+                dataVersion++;
+                monthlyAggregates.rebuild(foodItems);
+                summaries = monthlyAggregates.getAll();
+                spendingRollup.rebuild(foodItems);
+                cachedTable = null;
             }
+            cachedUserId = userId;
+            cachedRecordCount = foodItems.size();
+            cachedContentHash = contentHash;
+            version = dataVersion;
         }
-        
-        // 设置图片URL - 使用正确的字段名
-        if (data.containsKey("img_url")) {
-            item.setImageUrl((String) data.get("img_url"));
+        if (changed) {
+            saveMonthlySummaries(userId, summaries, true);
+            notifyObservers();
         }
-        
-        // 添加读取content字段
-        if (data.containsKey("content")) {
-            item.setContent((String) data.get("content"));
+        return version;
+    }
+
+    /**
+     * 退出登录后清空缓存，数据版本号加一并通知观察者
+     */
+    private void clearCache() {
+        synchronized (cacheLock) {
+            if (cachedUserId == null) {
+                return;
+            }
+            cachedUserId = null;
+            cachedRecordCount = 0;
+            cachedContentHash = 0;
+            monthlyAggregates.clear();
+            spendingRollup.rebuild(Collections.emptyList());
+            dataVersion++;
+            cachedTable = null;
         }
-        
-        // 设置位置信息 - 直接从location字段读取
-        if (data.containsKey("location")) {
-            item.setLocation((String) data.get("location"));
-            Log.d(TAG, "读取到位置信息: " + item.getTitle() + " -> " + item.getLocation());
-        } else {
-            Log.w(TAG, "数据中没有location字段: " + item.getTitle());
+        notifyObservers();
+    }
+
+    /**
+     * 计算记录列表的内容哈希，用于判断同步后数据是否变化
+     * 各条记录的哈希直接相加，与顺序无关，单条修改时可以增量更新
+     *
+     * @param foodItems 记录列表
+     * @return 内容哈希
+     */
+    private static long computeContentHash(List<FoodItem> foodItems) {
+        long hash = 0;
+        for (FoodItem item : foodItems) {
+            hash += itemHash(item);
         }
-        
-        return item;
+        return hash;
+    }
+
+    private static long itemHash(FoodItem item) {
+        long hash = Objects.hash(item.getDocumentId(), item.getTitle(), item.getTime(), item.getRating(),
+                item.getPrice(), item.getTags(), item.getImageUrl(), item.getContent(), item.getLocation());
+        // 扩散到64位，相加后不容易抵消
+        hash *= 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.example.tastylog.data;
+
+/**
+ * 一组记录的统计结果，由FoodAggregator计算
+ */
+public final class FoodStats {
+    // 半星一档，下标为评分乘2后四舍五入，0到10；只统计评分大于0的记录
+    public static final int RATING_BUCKETS = 11;
+
+    public final int recordCount;
+    public final long totalCents;
+    // 有记录的日期，升序，与dayCents一一对应
+    public final int[] days;
+    public final long[] dayCents;
+    public final int[] ratingHistogram;
+
+    FoodStats(int recordCount, long totalCents, int[] days, long[] dayCents, int[] ratingHistogram) {
+        this.recordCount = recordCount;
+        this.totalCents = totalCents;
+        this.days = days;
+        this.dayCents = dayCents;
+        this.ratingHistogram = ratingHistogram;
+    }
+
+    /**
+     * 半星档位对应的评分
+     */
+    public static float ratingOf(int bucket) {
+        return bucket / 2.0f;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.tastylog.data;
+
+import com.example.tastylog.model.FoodItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 美食记录的列式只读快照，供统计页面扫描
+ *
+ * 每个字段存为一个基本类型数组，第i行对应第i条记录；
+ * 位置按字典编码为整数ID，标签存为位图。
+ * 统计时顺序扫描需要的列，不再逐条访问FoodItem。
+ * 公开的数组只读，调用方不要修改
+ */
+public final class FoodTable {
+
+    // 没有位置的记录的位置ID
+    public static final int NO_LOCATION = -1;
+
+    public static final FoodTable EMPTY = build(new ArrayList<>());
+
+    public final int size;
+    public final long[] priceCents;
+    public final int[] epochDays;
+    public final float[] ratings;
+    public final int[] locationIds;
+    // 每行标签位图占用的long个数，第i行第t个标签在tagBits[i * tagWords + t / 64]的第t % 64位
+    public final int tagWords;
+    public final long[] tagBits;
+
+    private final FoodItem[] items;
+    private final String[] locations;
+    private final String[] tags;
+    private final Map<String, Integer> tagIds;
+
+    private FoodTable(FoodItem[] items, long[] priceCents, int[] epochDays, float[] ratings,
+                      int[] locationIds, String[] locations, int tagWords, long[] tagBits,
+                      String[] tags, Map<String, Integer> tagIds) {
+        this.size = items.length;
+        this.items = items;
+        this.priceCents = priceCents;
+        this.epochDays = epochDays;
+        this.ratings = ratings;
+        this.locationIds = locationIds;
+        this.locations = locations;
+        this.tagWords = tagWords;
+        this.tagBits = tagBits;
+        this.tags = tags;
+        this.tagIds = tagIds;
+    }
+
+    /**
+     * 从记录列表构建列式快照，行顺序与列表相同
+     *
+     * @param foodItems 记录列表
+     * @return 列式快照
+     */
+    public static FoodTable build(List<FoodItem> foodItems) {
+        int size = foodItems.size();
+        FoodItem[] items = foodItems.toArray(new FoodItem[0]);
+        long[] priceCents = new long[size];
+        int[] epochDays = new int[size];
+        float[] ratings = new float[size];
+        int[] locationIds = new int[size];
+
+        Map<String, Integer> locationIndex = new HashMap<>();
+        List<String> locations = new ArrayList<>();
+        Map<String, Integer> tagIndex = new HashMap<>();
+        List<String> tags = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            FoodItem item = items[i];
+            priceCents[i] = item.getPriceCents();
+            epochDays[i] = item.getEpochDay();
+            ratings[i] = item.getRating();
+            locationIds[i] = intern(item.getLocation(), locationIndex, locations);
+            if (item.getTags() != null) {
+                for (String tag : item.getTags()) {
+                    intern(tag, tagIndex, tags);
+                }
+            }
+        }
+
+        // 标签字典确定后再填位图
+        int tagWords = (tags.size() + 63) / 64;
+        long[] tagBits = new long[size * tagWords];
+        if (tagWords > 0) {
+            for (int i = 0; i < size; i++) {
+                List<String> itemTags = items[i].getTags();
+                if (itemTags == null) {
+                    continue;
+                }
+                for (String tag : itemTags) {
+                    Integer tagId = tag != null ? tagIndex.get(tag) : null;
+                    if (tagId != null) {
+                        tagBits[i * tagWords + (tagId >>> 6)] |= 1L << tagId;
+                    }
+                }
+            }
+        }
+
+        return new FoodTable(items, priceCents, epochDays, ratings, locationIds,
+                locations.toArray(new String[0]), tagWords, tagBits,
+                tags.toArray(new String[0]), tagIndex);
+    }
+
+    private static int intern(String value, Map<String, Integer> index, List<String> values) {
+        if (value == null || value.isEmpty()) {
+            return NO_LOCATION;
+        }
+        Integer id = index.get(value);
+        if (id == null) {
+            id = values.size();
+            index.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * 获取第row行对应的记录
+     */
+    public FoodItem getItem(int row) {
+        return items[row];
+    }
+
+    /**
+     * 不同位置的个数，位置ID的取值为0到getLocationCount() - 1
+     */
+    public int getLocationCount() {
+        return locations.length;
+    }
+
+    public String getLocation(int locationId) {
+        return locationId == NO_LOCATION ? null : locations[locationId];
+    }
+
+    /**
+     * 不同标签的个数，标签ID的取值为0到getTagCount() - 1
+     */
+    public int getTagCount() {
+        return tags.length;
+    }
+
+    public String getTag(int tagId) {
+        return tags[tagId];
+    }
+
+    /**
+     * 查找标签ID
+     *
+     * @param tag 标签
+     * @return 标签ID，没有记录使用该标签时返回-1
+     */
+    public int findTag(String tag) {
+        Integer tagId = tag != null ? tagIds.get(tag) : null;
+        return tagId != null ? tagId : -1;
+    }
+
+    public boolean hasTag(int row, int tagId) {
+        return (tagBits[row * tagWords + (tagId >>> 6)] & (1L << tagId)) != 0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.tastylog.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.tastylog.model.FoodItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 按日期倒序分页读取列式快照中的一组行，供FoodPager使用
+ *
+ * 快照只读，构造时排好序并统计每天的支出，之后的翻页直接在主线程同步回调。
+ * 同一天的记录按时间倒序，时间相同时按文档ID倒序，无法解析日期的记录排在最后
+ */
+public final class FoodTablePageSource implements FoodPager.Source {
+
+    private static final Comparator<FoodItem> ORDER = (a, b) -> {
+        if (a.getEpochDay() != b.getEpochDay()) {
+            return Integer.compare(b.getEpochDay(), a.getEpochDay());
+        }
+        if (a.getEpochMillis() != b.getEpochMillis()) {
+            return Long.compare(b.getEpochMillis(), a.getEpochMillis());
+        }
+        return keyOf(b).compareTo(keyOf(a));
+    };
+
+    private final FoodTable table;
+    private final int[] sortedRows;
+    // 有记录的日期，升序，与dayCents一一对应
+    private final int[] days;
+    private final long[] dayCents;
+
+    /**
+     * 排序和统计需要遍历全部行，在后台线程构造
+     *
+     * @param table 列式快照
+     * @param rows 要显示的行号
+     */
+    public FoodTablePageSource(FoodTable table, int[] rows) {
+        this.table = table;
+        Integer[] boxed = new Integer[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            boxed[i] = rows[i];
+        }
+        Arrays.sort(boxed, (a, b) -> ORDER.compare(table.getItem(a), table.getItem(b)));
+
+        sortedRows = new int[boxed.length];
+        int dayCount = 0;
+        for (int i = 0; i < boxed.length; i++) {
+            sortedRows[i] = boxed[i];
+            if (i == 0 || table.epochDays[sortedRows[i]] != table.epochDays[sortedRows[i - 1]]) {
+                dayCount++;
+            }
+        }
+        // 行按日期倒序，从数组末尾往前填得到升序
+        days = new int[dayCount];
+        dayCents = new long[dayCount];
+        int index = dayCount;
+        for (int i = 0; i < sortedRows.length; i++) {
+            int row = sortedRows[i];
+            if (i == 0 || table.epochDays[row] != table.epochDays[sortedRows[i - 1]]) {
+                index--;
+                days[index] = table.epochDays[row];
+            }
+            dayCents[index] += table.priceCents[row];
+        }
+    }
+
+    /**
+     * 显示的记录总数
+     */
+    public int size() {
+        return sortedRows.length;
+    }
+
+    /**
+     * 某一天全部记录的支出，不受分页窗口影响
+     *
+     * @param epochDay 日期，可以是FoodValueUtils.NO_DATE
+     * @return 支出，单位为分，这一天没有记录时返回0
+     */
+    public long getDayCents(int epochDay) {
+        int index = Arrays.binarySearch(days, epochDay);
+        return index >= 0 ? dayCents[index] : 0;
+    }
+
+    @Override
+    public void loadPage(@Nullable FoodItem anchor, boolean older, boolean inclusive, int limit,
+                         FoodRepository.FoodListCallback callback) {
+        int start;
+        int end;
+        if (anchor == null) {
+            start = 0;
+            end = Math.min(limit, sortedRows.length);
+        } else if (older) {
+            start = lowerBound(anchor, !inclusive);
+            end = Math.min(start + limit, sortedRows.length);
+        } else {
+            end = lowerBound(anchor, inclusive);
+            start = Math.max(end - limit, 0);
+        }
+        List<FoodItem> page = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            page.add(table.getItem(sortedRows[i]));
+        }
+        callback.onFoodListLoaded(page);
+    }
+
+    /**
+     * 第一个排在锚点之后（afterAnchor为true）或不早于锚点的位置
+     */
+    private int lowerBound(FoodItem anchor, boolean afterAnchor) {
+        int low = 0;
+        int high = sortedRows.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = ORDER.compare(table.getItem(sortedRows[mid]), anchor);
+            if (cmp < 0 || (afterAnchor && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String keyOf(FoodItem item) {
+        String key = item.getDocumentId() != null ? item.getDocumentId() : item.getId();
+        return key != null ? key : "";
+    }
+}
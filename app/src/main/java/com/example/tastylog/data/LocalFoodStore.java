@@ -0,0 +1,595 @@
+package com.example.tastylog.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import com.example.tastylog.model.FoodItem;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 食物记录本地存储
+ *
+ * 作为读取数据的来源，云端数据同步后写入这里。
+ * 本地修改先写入这里并记入待上传队列（outbox），再由FoodRepository在后台上传。
+ * 所有方法都会访问磁盘，不要在主线程调用
+ */
+public class LocalFoodStore {
+    private final FoodDbHelper dbHelper;
+
+    /**
+     * @param context 应用上下文
+     * @param dbName 数据库文件名，传null时使用内存数据库
+     */
+    public LocalFoodStore(Context context, @Nullable String dbName) {
+        dbHelper = new FoodDbHelper(context, dbName);
+    }
+
+    /**
+     * 读取用户的全部食物记录，按时间倒序
+     *
+     * @param userId 用户ID
+     * @return 食物记录列表
+     */
+    public List<FoodItem> getFoodItems(String userId) {
+        List<FoodItem> result = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_FOOD, null, FoodDbHelper.COL_USER_ID + " = ?",
+                new String[]{userId}, null, null, FoodDbHelper.COL_TIME + " DESC")) {
+            while (cursor.moveToNext()) {
+                result.add(readFoodItem(cursor));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按时间倒序分页读取用户的记录
+     *
+     * 以相邻页边界上的记录为锚点比较时间和文档ID，不使用OFFSET，
+     * 翻到很深的位置时也只读取一页。时间为空的记录排在最后
+     *
+     * @param userId 用户ID
+     * @param anchor 锚点记录，为null时从最新的记录开始
+     * @param older true读取比锚点更早的记录，false读取比锚点更新的记录
+     * @param inclusive 是否包含锚点本身
+     * @param limit 最多读取的条数
+     * @return 按时间倒序的记录
+     */
+    public List<FoodItem> getFoodItemsPage(String userId, @Nullable FoodItem anchor, boolean older,
+                                           boolean inclusive, int limit) {
+        String time = FoodDbHelper.COL_TIME;
+        String documentId = FoodDbHelper.COL_DOCUMENT_ID;
+        StringBuilder selection = new StringBuilder(FoodDbHelper.COL_USER_ID + " = ?");
+        List<String> args = new ArrayList<>();
+        args.add(userId);
+        if (anchor != null) {
+            String idOp = older ? (inclusive ? " <= ?" : " < ?") : (inclusive ? " >= ?" : " > ?");
+            if (anchor.getTime() != null) {
+                String timeOp = older ? " < ?" : " > ?";
+                selection.append(" AND (").append(time).append(timeOp)
+                        .append(" OR (").append(time).append(" = ? AND ").append(documentId).append(idOp).append(")");
+                // SQLite中NULL比任何值都小，倒序时排在最后
+                selection.append(older ? " OR " + time + " IS NULL)" : ")");
+                args.add(anchor.getTime());
+                args.add(anchor.getTime());
+            } else if (older) {
+                selection.append(" AND ").append(time).append(" IS NULL AND ").append(documentId).append(idOp);
+            } else {
+                selection.append(" AND (").append(time).append(" IS NOT NULL OR ").append(documentId).append(idOp).append(")");
+            }
+            args.add(anchor.getDocumentId());
+        }
+        // 向新的方向读取时按正序取离锚点最近的记录，再反转为倒序
+        String order = older ? " DESC" : " ASC";
+        List<FoodItem> result = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_FOOD, null, selection.toString(),
+                args.toArray(new String[0]), null, null, time + order + ", " + documentId + order,
+                String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                result.add(readFoodItem(cursor));
+            }
+        }
+        if (!older) {
+            Collections.reverse(result);
+        }
+        return result;
+    }
+
+    /**
+     * 合并同步拉取到的一页记录，已存在的记录会被覆盖
+     *
+     * @param userId 用户ID
+     * @param foodItems 变更过的记录
+     */
+    public void upsertAll(String userId, List<FoodItem> foodItems) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Set<String> pendingIds = getPendingDocumentIds(db, userId);
+            for (FoodItem item : foodItems) {
+                if (pendingIds.contains(item.getDocumentId())) {
+                    continue;
+                }
+                db.insertWithOnConflict(FoodDbHelper.TABLE_FOOD, null, toContentValues(userId, item),
+                        SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 删除云端已不存在的记录
+     *
+     * @param userId 用户ID
+     * @param remoteIds 云端现存的全部文档ID
+     * @return 删除的记录数
+     */
+    public int deleteMissing(String userId, Set<String> remoteIds) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        int removed = 0;
+        db.beginTransaction();
+        try {
+            // 本地新建还没上传的记录云端当然没有，不能删除
+            Set<String> pendingIds = getPendingDocumentIds(db, userId);
+            // 先收集要删除的ID并关闭游标，不在遍历游标时修改同一张表
+            List<String> missingIds = new ArrayList<>();
+            try (Cursor cursor = db.query(FoodDbHelper.TABLE_FOOD, new String[]{FoodDbHelper.COL_DOCUMENT_ID},
+                    FoodDbHelper.COL_USER_ID + " = ?", new String[]{userId}, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    String documentId = cursor.getString(0);
+                    if (!remoteIds.contains(documentId) && !pendingIds.contains(documentId)) {
+                        missingIds.add(documentId);
+                    }
+                }
+            }
+            for (String documentId : missingIds) {
+                removed += db.delete(FoodDbHelper.TABLE_FOOD, FoodDbHelper.COL_DOCUMENT_ID + " = ?",
+                        new String[]{documentId});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return removed;
+    }
+
+    /**
+     * 获取用户的增量同步水位线，即已同步文档中最大的$updatedAt
+     *
+     * @param userId 用户ID
+     * @return 水位线，从未同步过时返回null
+     */
+    @Nullable
+    public String getSyncWatermark(String userId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_SYNC_STATE, new String[]{FoodDbHelper.COL_WATERMARK},
+                FoodDbHelper.COL_USER_ID + " = ?", new String[]{userId}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * 获取上次与云端核对删除记录的时间
+     *
+     * @param userId 用户ID
+     * @return 毫秒时间戳，从未核对过时返回0
+     */
+    public long getLastReconcileTime(String userId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_SYNC_STATE, new String[]{FoodDbHelper.COL_LAST_RECONCILE},
+                FoodDbHelper.COL_USER_ID + " = ?", new String[]{userId}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * 保存同步状态
+     *
+     * @param userId 用户ID
+     * @param watermark 新的水位线
+     * @param lastReconcileTime 上次核对删除记录的时间
+     */
+    public void saveSyncState(String userId, @Nullable String watermark, long lastReconcileTime) {
+        ContentValues values = new ContentValues();
+        values.put(FoodDbHelper.COL_USER_ID, userId);
+        values.put(FoodDbHelper.COL_WATERMARK, watermark);
+        values.put(FoodDbHelper.COL_LAST_RECONCILE, lastReconcileTime);
+        dbHelper.getWritableDatabase().insertWithOnConflict(FoodDbHelper.TABLE_SYNC_STATE, null,
+                values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * 写入一条本地修改并记入待上传队列，两者在同一个事务中完成
+     * 同一文档已有未上传的修改时合并为一条：新建后再修改仍然是一次新建
+     *
+     * @param userId 用户ID
+     * @param item 食物记录，必须带有文档ID
+     * @param op OutboxEntry.OP_CREATE或OutboxEntry.OP_UPDATE
+     * @return 修改前的记录，之前不存在时为null
+     */
+    @Nullable
+    public FoodItem saveWithOutbox(String userId, FoodItem item, String op) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            String pendingOp = getPendingOp(db, item.getDocumentId());
+            if (OutboxEntry.OP_CREATE.equals(pendingOp)) {
+                // 还没创建到云端，上传时直接创建最新内容
+                op = OutboxEntry.OP_CREATE;
+            }
+            FoodItem previous = getFoodItem(db, item.getDocumentId());
+            // 第一次修改时记下云端已确认的版本，被拒绝时回滚到这里
+            FoodItem base = pendingOp == null && OutboxEntry.OP_UPDATE.equals(op) ? previous : null;
+
+            db.insertWithOnConflict(FoodDbHelper.TABLE_FOOD, null, toContentValues(userId, item),
+                    SQLiteDatabase.CONFLICT_REPLACE);
+            putOutboxEntry(db, userId, item.getDocumentId(), op, base);
+            db.setTransactionSuccessful();
+            return previous;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 删除一条记录并记入待上传队列
+     * 新建还没发出时直接丢弃；已经发出的新建可能已到达云端，改为删除
+     *
+     * @param userId 用户ID
+     * @param documentId 文档ID
+     * @return 删除前的记录，本来就不存在时为null
+     */
+    @Nullable
+    public FoodItem deleteWithOutbox(String userId, String documentId) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            String pendingOp = getPendingOp(db, documentId);
+            FoodItem previous = getFoodItem(db, documentId);
+            FoodItem base = pendingOp == null ? previous : null;
+            db.delete(FoodDbHelper.TABLE_FOOD, FoodDbHelper.COL_DOCUMENT_ID + " = ?", new String[]{documentId});
+            if (OutboxEntry.OP_CREATE.equals(pendingOp) && !isOutboxEntrySent(db, documentId)) {
+                db.delete(FoodDbHelper.TABLE_OUTBOX, FoodDbHelper.COL_DOCUMENT_ID + " = ?", new String[]{documentId});
+            } else {
+                putOutboxEntry(db, userId, documentId, OutboxEntry.OP_DELETE, base);
+            }
+            db.setTransactionSuccessful();
+            return previous;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 上传请求发出前调用，标记这条修改可能已到达云端
+     *
+     * @param entry 即将上传的修改
+     */
+    public void markOutboxEntrySent(OutboxEntry entry) {
+        ContentValues values = new ContentValues();
+        values.put(FoodDbHelper.COL_SENT, 1);
+        dbHelper.getWritableDatabase().update(FoodDbHelper.TABLE_OUTBOX, values,
+                FoodDbHelper.COL_DOCUMENT_ID + " = ?", new String[]{entry.documentId});
+    }
+
+    /**
+     * 读取已到重试时间的待上传修改，按入队顺序排列
+     *
+     * @param userId 用户ID
+     * @param now 当前时间
+     * @param limit 最多读取的条数
+     * @return 待上传的修改
+     */
+    public List<OutboxEntry> getDueOutboxEntries(String userId, long now, int limit) {
+        List<OutboxEntry> result = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_OUTBOX, null,
+                FoodDbHelper.COL_USER_ID + " = ? AND " + FoodDbHelper.COL_NEXT_ATTEMPT_AT + " <= ?",
+                new String[]{userId, String.valueOf(now)}, null, null, "rowid", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                String documentId = cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_DOCUMENT_ID));
+                String op = cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_OP));
+                FoodItem item = OutboxEntry.OP_DELETE.equals(op) ? null : getFoodItem(db, documentId);
+                FoodItem base = fromJson(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_BASE)));
+                result.add(new OutboxEntry(documentId, userId, op,
+                        cursor.getLong(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_REVISION)),
+                        cursor.getInt(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_ATTEMPTS)),
+                        item, base));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取最近一条等待重试的修改的重试时间
+     *
+     * @param userId 用户ID
+     * @return 毫秒时间戳，没有待上传的修改时返回0
+     */
+    public long getNextOutboxAttemptTime(String userId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT MIN(" + FoodDbHelper.COL_NEXT_ATTEMPT_AT + ") FROM "
+                + FoodDbHelper.TABLE_OUTBOX + " WHERE " + FoodDbHelper.COL_USER_ID + " = ?", new String[]{userId})) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * 一条修改上传成功后移出队列
+     * 上传期间又合并了新的修改时保留，新建已经完成的改为更新，回滚基准改为刚上传的内容
+     *
+     * @param entry 上传成功的修改
+     */
+    public void completeOutboxEntry(OutboxEntry entry) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        String[] args = {entry.documentId, String.valueOf(entry.revision)};
+        int deleted = db.delete(FoodDbHelper.TABLE_OUTBOX, FoodDbHelper.COL_DOCUMENT_ID + " = ? AND "
+                + FoodDbHelper.COL_REVISION + " = ?", args);
+        if (deleted == 0 && entry.item != null) {
+            ContentValues values = new ContentValues();
+            values.put(FoodDbHelper.COL_OP, OutboxEntry.OP_UPDATE);
+            values.put(FoodDbHelper.COL_BASE, toJson(entry.item));
+            db.update(FoodDbHelper.TABLE_OUTBOX, values, FoodDbHelper.COL_DOCUMENT_ID + " = ? AND "
+                    + FoodDbHelper.COL_OP + " != ?", new String[]{entry.documentId, OutboxEntry.OP_DELETE});
+        }
+    }
+
+    /**
+     * 服务端拒绝修改时回滚：移出队列，并把本地记录恢复为云端已确认的版本
+     * 上传期间又合并了新的修改时不回滚，交给下一次上传
+     *
+     * @param entry 被拒绝的修改
+     * @return 是否已回滚
+     */
+    public boolean rollbackOutboxEntry(OutboxEntry entry) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int deleted = db.delete(FoodDbHelper.TABLE_OUTBOX, FoodDbHelper.COL_DOCUMENT_ID + " = ? AND "
+                    + FoodDbHelper.COL_REVISION + " = ?", new String[]{entry.documentId, String.valueOf(entry.revision)});
+            if (deleted == 0) {
+                return false;
+            }
+            if (entry.base != null) {
+                db.insertWithOnConflict(FoodDbHelper.TABLE_FOOD, null, toContentValues(entry.userId, entry.base),
+                        SQLiteDatabase.CONFLICT_REPLACE);
+            } else {
+                db.delete(FoodDbHelper.TABLE_FOOD, FoodDbHelper.COL_DOCUMENT_ID + " = ?",
+                        new String[]{entry.documentId});
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 上传失败后记录重试次数和下次重试时间，期间已合并新修改的不受影响
+     *
+     * @param entry 上传失败的修改
+     * @param nextAttemptAt 下次重试时间
+     */
+    public void rescheduleOutboxEntry(OutboxEntry entry, long nextAttemptAt) {
+        ContentValues values = new ContentValues();
+        values.put(FoodDbHelper.COL_ATTEMPTS, entry.attempts + 1);
+        values.put(FoodDbHelper.COL_NEXT_ATTEMPT_AT, nextAttemptAt);
+        dbHelper.getWritableDatabase().update(FoodDbHelper.TABLE_OUTBOX, values,
+                FoodDbHelper.COL_DOCUMENT_ID + " = ? AND " + FoodDbHelper.COL_REVISION + " = ?",
+                new String[]{entry.documentId, String.valueOf(entry.revision)});
+    }
+
+    /**
+     * 读取用户某个月的汇总
+     *
+     * @param userId 用户ID
+     * @param yearMonth 年月，如202503
+     * @return 汇总，没有记录时返回null
+     */
+    @Nullable
+    public MonthlySummary getMonthlySummary(String userId, int yearMonth) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_MONTHLY_SUMMARY,
+                new String[]{FoodDbHelper.COL_RECORD_COUNT, FoodDbHelper.COL_SPENDING_CENTS,
+                        FoodDbHelper.COL_RATING_SUM, FoodDbHelper.COL_RATING_COUNT},
+                FoodDbHelper.COL_USER_ID + " = ? AND " + FoodDbHelper.COL_YEAR_MONTH + " = ?",
+                new String[]{userId, String.valueOf(yearMonth)}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new MonthlySummary(yearMonth, cursor.getInt(0), cursor.getLong(1),
+                    cursor.getDouble(2), cursor.getInt(3));
+        }
+    }
+
+    /**
+     * 保存用户的月份汇总
+     *
+     * @param userId 用户ID
+     * @param summaries 要保存的汇总
+     * @param replaceAll 为true时先删除该用户的全部汇总，用于全量重建后
+     */
+    public void saveMonthlySummaries(String userId, Collection<MonthlySummary> summaries, boolean replaceAll) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (replaceAll) {
+                db.delete(FoodDbHelper.TABLE_MONTHLY_SUMMARY, FoodDbHelper.COL_USER_ID + " = ?",
+                        new String[]{userId});
+            }
+            ContentValues values = new ContentValues();
+            for (MonthlySummary summary : summaries) {
+                values.clear();
+                values.put(FoodDbHelper.COL_USER_ID, userId);
+                values.put(FoodDbHelper.COL_YEAR_MONTH, summary.yearMonth);
+                values.put(FoodDbHelper.COL_RECORD_COUNT, summary.recordCount);
+                values.put(FoodDbHelper.COL_SPENDING_CENTS, summary.spendingCents);
+                values.put(FoodDbHelper.COL_RATING_SUM, summary.ratingSum);
+                values.put(FoodDbHelper.COL_RATING_COUNT, summary.ratingCount);
+                db.insertWithOnConflict(FoodDbHelper.TABLE_MONTHLY_SUMMARY, null, values,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void close() {
+        dbHelper.close();
+    }
+
+    private Set<String> getPendingDocumentIds(SQLiteDatabase db, String userId) {
+        Set<String> ids = new HashSet<>();
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_OUTBOX, new String[]{FoodDbHelper.COL_DOCUMENT_ID},
+                FoodDbHelper.COL_USER_ID + " = ?", new String[]{userId}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+        }
+        return ids;
+    }
+
+    @Nullable
+    private String getPendingOp(SQLiteDatabase db, String documentId) {
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_OUTBOX, new String[]{FoodDbHelper.COL_OP},
+                FoodDbHelper.COL_DOCUMENT_ID + " = ?", new String[]{documentId}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    private boolean isOutboxEntrySent(SQLiteDatabase db, String documentId) {
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_OUTBOX, new String[]{FoodDbHelper.COL_SENT},
+                FoodDbHelper.COL_DOCUMENT_ID + " = ?", new String[]{documentId}, null, null, null)) {
+            return cursor.moveToFirst() && cursor.getInt(0) != 0;
+        }
+    }
+
+    private void putOutboxEntry(SQLiteDatabase db, String userId, String documentId, String op,
+                                @Nullable FoodItem base) {
+        // 已有的行合并后版本号加一，重试计数清零，让新修改尽快上传
+        // minSdk 24的SQLite还不支持UPSERT，先尝试更新，没有再插入
+        db.execSQL("UPDATE " + FoodDbHelper.TABLE_OUTBOX + " SET "
+                        + FoodDbHelper.COL_OP + " = ?, "
+                        + FoodDbHelper.COL_REVISION + " = " + FoodDbHelper.COL_REVISION + " + 1, "
+                        + FoodDbHelper.COL_ATTEMPTS + " = 0, "
+                        + FoodDbHelper.COL_NEXT_ATTEMPT_AT + " = 0 WHERE " + FoodDbHelper.COL_DOCUMENT_ID + " = ?",
+                new Object[]{op, documentId});
+        if (getPendingOp(db, documentId) == null) {
+            ContentValues values = new ContentValues();
+            values.put(FoodDbHelper.COL_DOCUMENT_ID, documentId);
+            values.put(FoodDbHelper.COL_USER_ID, userId);
+            values.put(FoodDbHelper.COL_OP, op);
+            values.put(FoodDbHelper.COL_BASE, base != null ? toJson(base) : null);
+            db.insert(FoodDbHelper.TABLE_OUTBOX, null, values);
+        }
+    }
+
+    @Nullable
+    private FoodItem getFoodItem(SQLiteDatabase db, String documentId) {
+        try (Cursor cursor = db.query(FoodDbHelper.TABLE_FOOD, null, FoodDbHelper.COL_DOCUMENT_ID + " = ?",
+                new String[]{documentId}, null, null, null)) {
+            return cursor.moveToFirst() ? readFoodItem(cursor) : null;
+        }
+    }
+
+    private ContentValues toContentValues(String userId, FoodItem item) {
+        ContentValues values = new ContentValues();
+        values.put(FoodDbHelper.COL_DOCUMENT_ID, item.getDocumentId());
+        values.put(FoodDbHelper.COL_USER_ID, userId);
+        values.put(FoodDbHelper.COL_FOOD_ID, item.getId());
+        values.put(FoodDbHelper.COL_TITLE, item.getTitle());
+        values.put(FoodDbHelper.COL_TIME, item.getTime());
+        values.put(FoodDbHelper.COL_RATING, item.getRating());
+        values.put(FoodDbHelper.COL_PRICE, item.getPrice());
+        values.put(FoodDbHelper.COL_TAGS, item.getTags() != null ? TextUtils.join(",", item.getTags()) : "");
+        values.put(FoodDbHelper.COL_IMAGE_URL, item.getImageUrl());
+        values.put(FoodDbHelper.COL_CONTENT, item.getContent());
+        values.put(FoodDbHelper.COL_LOCATION, item.getLocation());
+        return values;
+    }
+
+    private static String toJson(FoodItem item) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put(FoodDbHelper.COL_DOCUMENT_ID, item.getDocumentId());
+            json.put(FoodDbHelper.COL_FOOD_ID, item.getId());
+            json.put(FoodDbHelper.COL_TITLE, item.getTitle());
+            json.put(FoodDbHelper.COL_TIME, item.getTime());
+            json.put(FoodDbHelper.COL_RATING, item.getRating());
+            json.put(FoodDbHelper.COL_PRICE, item.getPrice());
+            json.put(FoodDbHelper.COL_TAGS, item.getTags() != null ? TextUtils.join(",", item.getTags()) : "");
+            json.put(FoodDbHelper.COL_IMAGE_URL, item.getImageUrl());
+            json.put(FoodDbHelper.COL_CONTENT, item.getContent());
+            json.put(FoodDbHelper.COL_LOCATION, item.getLocation());
+            return json.toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nullable
+    private static FoodItem fromJson(@Nullable String value) {
+        if (TextUtils.isEmpty(value)) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(value);
+            FoodItem item = new FoodItem();
+            item.setDocumentId(json.optString(FoodDbHelper.COL_DOCUMENT_ID, null));
+            item.setId(json.optString(FoodDbHelper.COL_FOOD_ID, null));
+            item.setTitle(json.optString(FoodDbHelper.COL_TITLE, null));
+            item.setTime(json.optString(FoodDbHelper.COL_TIME, null));
+            item.setRating((float) json.optDouble(FoodDbHelper.COL_RATING, 0));
+            item.setPrice(json.optString(FoodDbHelper.COL_PRICE, null));
+            item.setImageUrl(json.optString(FoodDbHelper.COL_IMAGE_URL, null));
+            item.setContent(json.optString(FoodDbHelper.COL_CONTENT, null));
+            item.setLocation(json.optString(FoodDbHelper.COL_LOCATION, null));
+            readTags(json.optString(FoodDbHelper.COL_TAGS, ""), item);
+            return item;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static void readTags(String tags, FoodItem item) {
+        if (!TextUtils.isEmpty(tags)) {
+            for (String tag : tags.split(",")) {
+                item.getTags().add(tag.trim());
+            }
+        }
+    }
+
+    private FoodItem readFoodItem(Cursor cursor) {
+        FoodItem item = new FoodItem();
+        item.setDocumentId(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_DOCUMENT_ID)));
+        item.setId(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_FOOD_ID)));
+        item.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_TITLE)));
+        item.setTime(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_TIME)));
+        item.setRating(cursor.getFloat(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_RATING)));
+        item.setPrice(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_PRICE)));
+        item.setImageUrl(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_IMAGE_URL)));
+        item.setContent(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_CONTENT)));
+        item.setLocation(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_LOCATION)));
+
+        readTags(cursor.getString(cursor.getColumnIndexOrThrow(FoodDbHelper.COL_TAGS)), item);
+        return item;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.tastylog.data;
+
+import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.utils.FoodValueUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按年月维护的消费汇总
+ *
+ * 全量数据变化时重建一次，之后每次增删改只更新涉及的月份。
+ * 不是线程安全的，由FoodRepository在缓存锁内访问
+ */
+class MonthlyAggregates {
+    private static final int NO_MONTH = 0;
+
+    private final Map<Integer, MonthlySummary> summaries = new HashMap<>();
+
+    /**
+     * 用完整的记录列表重建
+     */
+    void rebuild(List<FoodItem> foodItems) {
+        summaries.clear();
+        for (FoodItem item : foodItems) {
+            apply(item, 1);
+        }
+    }
+
+    void clear() {
+        summaries.clear();
+    }
+
+    /**
+     * 用一条记录的新旧内容更新汇总
+     *
+     * @param oldItem 修改前的记录，新建时为null
+     * @param newItem 修改后的记录，删除时为null
+     * @return 发生变化的月份汇总
+     */
+    List<MonthlySummary> update(FoodItem oldItem, FoodItem newItem) {
+        int oldMonth = oldItem != null ? apply(oldItem, -1) : NO_MONTH;
+        int newMonth = newItem != null ? apply(newItem, 1) : NO_MONTH;
+        List<MonthlySummary> changed = new ArrayList<>(2);
+        if (oldMonth != NO_MONTH) {
+            changed.add(summaries.get(oldMonth));
+        }
+        if (newMonth != NO_MONTH && newMonth != oldMonth) {
+            changed.add(summaries.get(newMonth));
+        }
+        return changed;
+    }
+
+    MonthlySummary get(int yearMonth) {
+        MonthlySummary summary = summaries.get(yearMonth);
+        return summary != null ? summary : MonthlySummary.empty(yearMonth);
+    }
+
+    Collection<MonthlySummary> getAll() {
+        return new ArrayList<>(summaries.values());
+    }
+
+    /**
+     * @return 记录所在的年月，记录时间无法解析时返回NO_MONTH
+     */
+    private int apply(FoodItem item, int sign) {
+        int epochDay = item.getEpochDay();
+        if (epochDay == FoodValueUtils.NO_DATE) {
+            return NO_MONTH;
+        }
+        int yearMonth = FoodValueUtils.toYearMonth(epochDay);
+        summaries.put(yearMonth, get(yearMonth).plus(item, sign));
+        return yearMonth;
+    }
+}
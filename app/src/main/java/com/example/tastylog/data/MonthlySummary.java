@@ -0,0 +1,55 @@
+package com.example.tastylog.data;
+
+import com.example.tastylog.model.FoodItem;
+
+/**
+ * 某个月的消费汇总：记录数、总消费和评分
+ *
+ * 不可变对象，记录增删改时由MonthlyAggregates生成新的汇总
+ */
+public final class MonthlySummary {
+    // 年月，如202503
+    public final int yearMonth;
+    public final int recordCount;
+    public final long spendingCents;
+    // 只统计评分大于0的记录
+    public final double ratingSum;
+    public final int ratingCount;
+
+    public MonthlySummary(int yearMonth, int recordCount, long spendingCents, double ratingSum, int ratingCount) {
+        this.yearMonth = yearMonth;
+        this.recordCount = recordCount;
+        this.spendingCents = spendingCents;
+        this.ratingSum = ratingSum;
+        this.ratingCount = ratingCount;
+    }
+
+    public static MonthlySummary empty(int yearMonth) {
+        return new MonthlySummary(yearMonth, 0, 0, 0, 0);
+    }
+
+    public double getSpending() {
+        return spendingCents / 100.0;
+    }
+
+    public double getAverageRating() {
+        return ratingCount > 0 ? ratingSum / ratingCount : 0;
+    }
+
+    /**
+     * 加上或减去一条记录
+     *
+     * @param item 记录
+     * @param sign 1为加上，-1为减去
+     * @return 新的汇总
+     */
+    MonthlySummary plus(FoodItem item, int sign) {
+        float rating = item.getRating();
+        boolean rated = rating > 0;
+        return new MonthlySummary(yearMonth,
+                recordCount + sign,
+                spendingCents + sign * item.getPriceCents(),
+                rated ? ratingSum + sign * rating : ratingSum,
+                rated ? ratingCount + sign : ratingCount);
+    }
+}
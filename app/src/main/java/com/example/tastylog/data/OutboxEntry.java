@@ -0,0 +1,38 @@
+package com.example.tastylog.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.tastylog.model.FoodItem;
+
+/**
+ * 一条待上传到云端的本地修改
+ */
+public class OutboxEntry {
+    public static final String OP_CREATE = "create";
+    public static final String OP_UPDATE = "update";
+    public static final String OP_DELETE = "delete";
+
+    public final String documentId;
+    public final String userId;
+    public final String op;
+    // 每次合并新的修改时加一，上传完成时据此判断期间是否又有修改
+    public final long revision;
+    public final int attempts;
+    // 创建和更新时为要上传的记录，删除时为null
+    @Nullable
+    public final FoodItem item;
+    // 修改前云端已确认的记录，服务端拒绝时回滚到这里；新建时为null
+    @Nullable
+    public final FoodItem base;
+
+    public OutboxEntry(String documentId, String userId, String op, long revision, int attempts,
+                       @Nullable FoodItem item, @Nullable FoodItem base) {
+        this.documentId = documentId;
+        this.userId = userId;
+        this.op = op;
+        this.revision = revision;
+        this.attempts = attempts;
+        this.item = item;
+        this.base = base;
+    }
+}
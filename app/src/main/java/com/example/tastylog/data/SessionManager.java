@@ -0,0 +1,96 @@
+package com.example.tastylog.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+
+/**
+ * 登录会话管理类
+ *
+ * 登录成功后缓存用户ID和会话ID并持久化到SharedPreferences，
+ * 读取时不访问网络，可以在任意线程调用
+ */
+public class SessionManager {
+    private static final String PREFS_NAME = "session_prefs";
+    private static final String KEY_USER_ID = "user_id";
+    private static final String KEY_SESSION_ID = "session_id";
+
+    private static SessionManager instance;
+
+    private final SharedPreferences prefs;
+    // 内存中的副本，避免每次读取都访问SharedPreferences
+    private volatile String userId;
+    private volatile String sessionId;
+
+    private SessionManager(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        userId = prefs.getString(KEY_USER_ID, "");
+        sessionId = prefs.getString(KEY_SESSION_ID, "");
+    }
+
+    public static synchronized SessionManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionManager(context);
+        }
+        return instance;
+    }
+
+    /**
+     * 获取缓存的用户ID
+     *
+     * @return 用户ID，未登录时返回空字符串
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * 获取缓存的会话ID
+     *
+     * @return 会话ID，未知时返回空字符串
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public boolean isLoggedIn() {
+        return !TextUtils.isEmpty(userId);
+    }
+
+    /**
+     * 登录成功后保存会话
+     *
+     * @param userId 用户ID
+     * @param sessionId 会话ID，未知时传空字符串
+     */
+    public synchronized void saveSession(String userId, String sessionId) {
+        this.userId = userId != null ? userId : "";
+        this.sessionId = sessionId != null ? sessionId : "";
+        prefs.edit()
+                .putString(KEY_USER_ID, this.userId)
+                .putString(KEY_SESSION_ID, this.sessionId)
+                .apply();
+    }
+
+    /**
+     * 只更新用户ID，保留已有的会话ID
+     *
+     * @param userId 用户ID
+     */
+    public synchronized void updateUserId(String userId) {
+        if (userId == null || userId.equals(this.userId)) {
+            return;
+        }
+        this.userId = userId;
+        prefs.edit().putString(KEY_USER_ID, userId).apply();
+    }
+
+    /**
+     * 登出或会话失效时清除缓存
+     */
+    public synchronized void clear() {
+        userId = "";
+        sessionId = "";
+        prefs.edit().clear().apply();
+    }
+}
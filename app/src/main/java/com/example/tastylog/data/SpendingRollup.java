@@ -0,0 +1,265 @@
+package com.example.tastylog.data;
+
+import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.utils.FoodValueUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按日、周、月汇总的消费时间序列
+ *
+ * 每种粒度只保存有记录的时间段，按时间排序并维护消费的前缀和：
+ * 任意日期范围的总消费是两次二分查找，序列按范围内的时间段数返回，不需要扫描记录。
+ * 记录增删改时只更新涉及的时间段。方法都已同步，可以在任意线程调用
+ */
+public class SpendingRollup {
+
+    public static final int GRANULARITY_DAY = 0;
+    // 周一为一周的第一天
+    public static final int GRANULARITY_WEEK = 1;
+    public static final int GRANULARITY_MONTH = 2;
+
+    /**
+     * 一段时间序列，只包含有记录的时间段
+     */
+    public static class Series {
+        public final int granularity;
+        // 每个时间段第一天的epochDay
+        public final int[] startDays;
+        public final long[] cents;
+
+        Series(int granularity, int[] startDays, long[] cents) {
+            this.granularity = granularity;
+            this.startDays = startDays;
+            this.cents = cents;
+        }
+
+        public int size() {
+            return startDays.length;
+        }
+    }
+
+    private final Buckets[] buckets = {new Buckets(), new Buckets(), new Buckets()};
+
+    /**
+     * 用完整的记录列表重建
+     */
+    public synchronized void rebuild(List<FoodItem> foodItems) {
+        for (int granularity = 0; granularity < buckets.length; granularity++) {
+            Map<Integer, long[]> totals = new HashMap<>();
+            for (FoodItem item : foodItems) {
+                int epochDay = item.getEpochDay();
+                if (epochDay == FoodValueUtils.NO_DATE) {
+                    continue;
+                }
+                int key = toKey(granularity, epochDay);
+                long[] total = totals.get(key);
+                if (total == null) {
+                    total = new long[2];
+                    totals.put(key, total);
+                }
+                total[0] += item.getPriceCents();
+                total[1]++;
+            }
+            buckets[granularity].reset(totals);
+        }
+    }
+
+    /**
+     * 用一条记录的新旧内容更新汇总
+     *
+     * @param oldItem 修改前的记录，新建时为null
+     * @param newItem 修改后的记录，删除时为null
+     */
+    public synchronized void update(FoodItem oldItem, FoodItem newItem) {
+        if (oldItem != null) {
+            apply(oldItem, -1);
+        }
+        if (newItem != null) {
+            apply(newItem, 1);
+        }
+    }
+
+    /**
+     * 复制当前的汇总，之后对原汇总的更新不影响副本
+     *
+     * @return 汇总副本
+     */
+    public synchronized SpendingRollup copy() {
+        SpendingRollup copy = new SpendingRollup();
+        for (int granularity = 0; granularity < buckets.length; granularity++) {
+            copy.buckets[granularity] = buckets[granularity].copy();
+        }
+        return copy;
+    }
+
+    /**
+     * 日期范围内的总消费
+     *
+     * @param startDay 起始日期（含）
+     * @param endDay 结束日期（含）
+     * @return 总消费（分）
+     */
+    public synchronized long getTotalCents(int startDay, int endDay) {
+        return buckets[GRANULARITY_DAY].rangeTotal(startDay, endDay);
+    }
+
+    /**
+     * 日期范围内的消费序列，按周和按月时包含起止日期所在的整周、整月
+     *
+     * @param granularity GRANULARITY_DAY、GRANULARITY_WEEK或GRANULARITY_MONTH
+     * @param startDay 起始日期（含）
+     * @param endDay 结束日期（含）
+     * @return 时间序列
+     */
+    public synchronized Series getSeries(int granularity, int startDay, int endDay) {
+        Buckets b = buckets[granularity];
+        int from = b.lowerBound(toKey(granularity, startDay));
+        int to = b.lowerBound(toKey(granularity, endDay) + 1);
+        int[] startDays = new int[to - from];
+        for (int i = from; i < to; i++) {
+            startDays[i - from] = toStartDay(granularity, b.keys[i]);
+        }
+        return new Series(granularity, startDays, Arrays.copyOfRange(b.cents, from, to));
+    }
+
+    private void apply(FoodItem item, int sign) {
+        int epochDay = item.getEpochDay();
+        if (epochDay == FoodValueUtils.NO_DATE) {
+            return;
+        }
+        for (int granularity = 0; granularity < buckets.length; granularity++) {
+            buckets[granularity].add(toKey(granularity, epochDay), sign * item.getPriceCents(), sign);
+        }
+    }
+
+    private static int toKey(int granularity, int epochDay) {
+        switch (granularity) {
+            case GRANULARITY_WEEK:
+                // 1970-01-01是周四，加3后按7取整即以周一为界
+                return Math.floorDiv(epochDay + 3, 7);
+            case GRANULARITY_MONTH:
+                int[] date = FoodValueUtils.fromEpochDay(epochDay);
+                return date[0] * 12 + date[1] - 1;
+            default:
+                return epochDay;
+        }
+    }
+
+    private static int toStartDay(int granularity, int key) {
+        switch (granularity) {
+            case GRANULARITY_WEEK:
+                return key * 7 - 3;
+            case GRANULARITY_MONTH:
+                return FoodValueUtils.toEpochDay(Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1, 1);
+            default:
+                return key;
+        }
+    }
+
+    /**
+     * 一种粒度下按时间排序的时间段
+     */
+    private static class Buckets {
+        int size;
+        int[] keys = new int[0];
+        long[] cents = new long[0];
+        int[] counts = new int[0];
+        // prefix[i]为前i个时间段的消费之和
+        long[] prefix = new long[1];
+
+        void reset(Map<Integer, long[]> totals) {
+            size = totals.size();
+            keys = new int[size];
+            int i = 0;
+            for (int key : totals.keySet()) {
+                keys[i++] = key;
+            }
+            Arrays.sort(keys);
+            cents = new long[size];
+            counts = new int[size];
+            for (i = 0; i < size; i++) {
+                long[] total = totals.get(keys[i]);
+                cents[i] = total[0];
+                counts[i] = (int) total[1];
+            }
+            prefix = new long[size + 1];
+            updatePrefix(0);
+        }
+
+        /**
+         * 累加到一个时间段，记录数减到0时移除该时间段，之后的前缀和重新计算
+         */
+        void add(int key, long deltaCents, int deltaCount) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index < 0) {
+                if (deltaCount <= 0) {
+                    return;
+                }
+                index = -index - 1;
+                insert(index, key);
+            }
+            cents[index] += deltaCents;
+            counts[index] += deltaCount;
+            if (counts[index] <= 0) {
+                remove(index);
+            }
+            updatePrefix(index);
+        }
+
+        Buckets copy() {
+            Buckets copy = new Buckets();
+            copy.size = size;
+            copy.keys = Arrays.copyOf(keys, size);
+            copy.cents = Arrays.copyOf(cents, size);
+            copy.counts = Arrays.copyOf(counts, size);
+            copy.prefix = Arrays.copyOf(prefix, size + 1);
+            return copy;
+        }
+
+        long rangeTotal(int fromKey, int toKey) {
+            return prefix[lowerBound(toKey + 1)] - prefix[lowerBound(fromKey)];
+        }
+
+        /**
+         * @return 第一个不小于key的时间段下标
+         */
+        int lowerBound(int key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private void insert(int index, int key) {
+            if (size == keys.length) {
+                int capacity = Math.max(16, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                cents = Arrays.copyOf(cents, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                prefix = Arrays.copyOf(prefix, capacity + 1);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(cents, index, cents, index + 1, size - index);
+            System.arraycopy(counts, index, counts, index + 1, size - index);
+            keys[index] = key;
+            cents[index] = 0;
+            counts[index] = 0;
+            size++;
+        }
+
+        private void remove(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(cents, index + 1, cents, index, size - index - 1);
+            System.arraycopy(counts, index + 1, counts, index, size - index - 1);
+            size--;
+        }
+
+        private void updatePrefix(int from) {
+            for (int i = from; i < size; i++) {
+                prefix[i + 1] = prefix[i] + cents[i];
+            }
+        }
+    }
+}
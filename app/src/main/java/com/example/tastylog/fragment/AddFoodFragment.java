@@ -31,6 +31,7 @@ import androidx.core.content.FileProvider;
 import com.example.tastylog.AppwriteWrapper;
 import com.example.tastylog.MainActivity;
 import com.example.tastylog.R;
+import com.example.tastylog.data.FoodRepository;
 import com.example.tastylog.model.FoodItem;
 import com.example.tastylog.utils.BitmapUtil;
 import com.example.tastylog.config.AppConfig;
@@ -42,6 +43,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -403,47 +405,37 @@ public class AddFoodFragment extends BaseFragment {
         // 创建FoodItem对象
         FoodItem foodItem = new FoodItem();
         foodItem.setTitle(storeName);
-        foodItem.setPrice(String.valueOf(price));
+        foodItem.setPrice("¥" + price);
         foodItem.setRating(rating);
         foodItem.setNotes(notes);
+        foodItem.setContent(notes);
         foodItem.setTime(time);
-        foodItem.setTags(List.of(tags.split(",")));
+        foodItem.setTags(new ArrayList<>(Arrays.asList(tags.split(","))));
         foodItem.setImageUrl(imageUrl);
         foodItem.setLocation(location);
         
-        // 获取当前用户ID
-        String userId = AppwriteWrapper.getInstance().getCurrentUserId();
-        
-        // 调用AppwriteWrapper保存食物记录
-        AppwriteWrapper.getInstance().addFoodItem(
-            userId,
-            storeName,
-            time,
-            imageUrl,
-            rating,
-            price,
-            tags,
-            notes,
-            location,
-            document -> {
-                requireActivity().runOnUiThread(() -> {
-                    Toast.makeText(requireContext(), "保存成功", Toast.LENGTH_SHORT).show();
-                    
-                    // 刷新首页数据
-                    if (getActivity() != null && getActivity() instanceof MainActivity) {
-                        ((MainActivity) getActivity()).refreshHomeFragment();
-                    }
-                    
-                    // 返回上一页
-                    requireActivity().onBackPressed();
-                });
-            },
-            error -> {
-                requireActivity().runOnUiThread(() -> {
-                    Toast.makeText(requireContext(), "保存失败: " + error.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+        // 先保存到本地，再由FoodRepository在后台上传，断网时也能立即保存
+        FoodRepository.getInstance(requireContext()).addFoodItem(foodItem, new FoodRepository.FoodItemCallback() {
+            @Override
+            public void onSuccess(FoodItem savedItem) {
+                if (!isAdded()) {
+                    return;
+                }
+                Toast.makeText(requireContext(), "保存成功", Toast.LENGTH_SHORT).show();
+                
+                // 回到首页，首页已通过观察者显示新记录
+                if (getActivity() instanceof MainActivity) {
+                    ((MainActivity) getActivity()).returnToHome();
+                }
             }
-        );
+
+            @Override
+            public void onError(Exception e) {
+                if (isAdded()) {
+                    Toast.makeText(requireContext(), "保存失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
     }
 
     @Override
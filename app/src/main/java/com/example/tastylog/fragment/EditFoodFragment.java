@@ -30,6 +30,7 @@ import androidx.core.content.FileProvider;
 import com.example.tastylog.AppwriteWrapper;
 import com.example.tastylog.MainActivity;
 import com.example.tastylog.R;
+import com.example.tastylog.data.FoodRepository;
 import com.example.tastylog.model.FoodItem;
 import com.example.tastylog.config.AppConfig;
 import com.google.android.material.chip.Chip;
@@ -42,6 +43,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -277,43 +279,42 @@ public class EditFoodFragment extends BaseFragment {
 
     // 保存到数据库
     private void saveToDatabase(String storeName, String time, String imageUrl, float rating, double price, String tags, String notes, String location) {
-        // 获取当前用户ID
-        String userId = AppwriteWrapper.getInstance().getCurrentUserId();
+        // 保留原记录的文档ID和food_id
+        FoodItem updatedItem = new FoodItem();
+        updatedItem.setDocumentId(foodItemToEdit.getDocumentId());
+        updatedItem.setId(foodItemToEdit.getId());
+        updatedItem.setTitle(storeName);
+        updatedItem.setTime(time);
+        updatedItem.setImageUrl(imageUrl);
+        updatedItem.setRating(rating);
+        updatedItem.setPrice("¥" + price);
+        updatedItem.setTags(new ArrayList<>(Arrays.asList(tags.split(","))));
+        updatedItem.setNotes(notes);
+        updatedItem.setContent(notes);
+        updatedItem.setLocation(location);
         
-        // 获取文档ID
-        String documentId = foodItemToEdit.getDocumentId();
-        
-        // 调用AppwriteWrapper更新记录
-        AppwriteWrapper.getInstance().updateFoodItem(
-            userId,
-            documentId,
-            storeName,
-            time,
-            imageUrl,
-            rating,
-            price,
-            tags,
-            notes,
-            location,
-            document -> {
-                requireActivity().runOnUiThread(() -> {
-                    Toast.makeText(requireContext(), "更新成功", Toast.LENGTH_SHORT).show();
-                    
-                    // 刷新首页数据
-                    if (getActivity() != null && getActivity() instanceof MainActivity) {
-                        ((MainActivity) getActivity()).refreshHomeFragment();
-                    }
-                    
-                    // 返回上一页
-                    requireActivity().onBackPressed();
-                });
-            },
-            error -> {
-                requireActivity().runOnUiThread(() -> {
-                    Toast.makeText(requireContext(), "更新失败: " + error.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+        // 先保存到本地，再由FoodRepository在后台上传，断网时也能立即保存
+        FoodRepository.getInstance(requireContext()).updateFoodItem(updatedItem, new FoodRepository.FoodItemCallback() {
+            @Override
+            public void onSuccess(FoodItem savedItem) {
+                if (!isAdded()) {
+                    return;
+                }
+                Toast.makeText(requireContext(), "更新成功", Toast.LENGTH_SHORT).show();
+                
+                // 回到首页，首页已通过观察者显示修改后的记录
+                if (getActivity() instanceof MainActivity) {
+                    ((MainActivity) getActivity()).returnToHome();
+                }
             }
-        );
+
+            @Override
+            public void onError(Exception e) {
+                if (isAdded()) {
+                    Toast.makeText(requireContext(), "更新失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
     }
 
     @Override
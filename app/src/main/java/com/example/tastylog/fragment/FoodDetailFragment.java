@@ -15,10 +15,10 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.viewpager2.widget.ViewPager2;
 
-import com.example.tastylog.AppwriteWrapper;
 import com.example.tastylog.MainActivity;
 import com.example.tastylog.R;
 import com.example.tastylog.adapter.FoodImageAdapter;
+import com.example.tastylog.data.FoodRepository;
 import com.example.tastylog.model.FoodItem;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.chip.Chip;
@@ -155,12 +155,8 @@ public class FoodDetailFragment extends Fragment {
                 if (foodItem != null && getActivity() instanceof MainActivity) {
                     EditFoodFragment editFoodFragment = EditFoodFragment.newInstance(foodItem);
                     
-                    // 使用Fragment事务替换当前Fragment
-                    getActivity().getSupportFragmentManager()
-                        .beginTransaction()
-                        .replace(R.id.container, editFoodFragment)
-                        .addToBackStack(null)
-                        .commit();
+                    // 在详情页上方打开编辑页，返回时回到详情页
+                    ((MainActivity) getActivity()).openPage(editFoodFragment);
                 }
             });
         }
@@ -201,9 +197,6 @@ public class FoodDetailFragment extends Fragment {
                 
                 // 处理不同类型的Activity
                 if (getActivity() instanceof MainActivity) {
-                    // 处理删除逻辑
-                    AppwriteWrapper appwrite = AppwriteWrapper.getInstance();
-                    String userId = appwrite.getCurrentUserId();
                     String documentId = foodItem.getDocumentId();
                     
                     // 检查documentId
@@ -213,32 +206,32 @@ public class FoodDetailFragment extends Fragment {
                         return;
                     }
                     
-                    // 直接调用AppwriteWrapper删除
-                    appwrite.deleteFoodItem(
-                        userId,
-                        documentId,
-                        () -> {
+                    // 先从本地删除，再由FoodRepository在后台从云端删除
+                    FoodRepository.getInstance(requireContext()).deleteFoodItem(foodItem, new FoodRepository.FoodItemCallback() {
+                        @Override
+                        public void onSuccess(FoodItem deletedItem) {
                             Log.d("FoodDetailFragment", "删除成功");
-                            requireActivity().runOnUiThread(() -> {
-                                Toast.makeText(requireContext(), "删除成功", Toast.LENGTH_SHORT).show();
-                                
-                                // 刷新首页
-                                MainActivity activity = (MainActivity) getActivity();
-                                if (activity != null) {
-                                    activity.refreshHomeFragment();
-                                    // 回到上一页
-                                    activity.onBackPressed();
-                                }
-                            });
-                        },
-                        error -> {
-                            Log.e("FoodDetailFragment", "删除失败: " + error.getMessage());
-                            requireActivity().runOnUiThread(() -> {
-                                Toast.makeText(requireContext(), "删除失败: " + error.getMessage(), 
+                            if (!isAdded()) {
+                                return;
+                            }
+                            Toast.makeText(requireContext(), "删除成功", Toast.LENGTH_SHORT).show();
+                            
+                            // 回到首页，首页已通过观察者移除这条记录
+                            MainActivity activity = (MainActivity) getActivity();
+                            if (activity != null) {
+                                activity.returnToHome();
+                            }
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            Log.e("FoodDetailFragment", "删除失败: " + e.getMessage());
+                            if (isAdded()) {
+                                Toast.makeText(requireContext(), "删除失败: " + e.getMessage(), 
                                     Toast.LENGTH_SHORT).show();
-                            });
+                            }
                         }
-                    );
+                    });
                 } else {
                     Log.e("FoodDetailFragment", "错误: 未知Activity类型: " + 
                         (getActivity() != null ? getActivity().getClass().getSimpleName() : "null"));
@@ -1,7 +1,6 @@
 package com.example.tastylog.fragment;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,6 +11,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -19,10 +19,10 @@ import com.airbnb.lottie.LottieAnimationView;
 import com.example.tastylog.MainActivity;
 import com.example.tastylog.R;
 import com.example.tastylog.adapter.FoodCardAdapter;
-import com.example.tastylog.data.FoodRepository;
+import com.example.tastylog.data.MonthlySummary;
 import com.example.tastylog.decoration.SpaceItemDecoration;
 import com.example.tastylog.model.FoodItem;
-import com.example.tastylog.utils.SafeCallback;
+import com.example.tastylog.viewmodel.FoodListViewModel;
 
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
@@ -36,6 +36,9 @@ import java.util.Locale;
  */
 public class HomeFragment extends BaseFragment {
 
+    // 距离窗口边缘还剩多少条时读取下一页
+    private static final int PREFETCH_DISTANCE = 10;
+
     private RecyclerView recyclerView;
     private FoodCardAdapter adapter;
     private LottieAnimationView loadingAnimation;
@@ -49,7 +52,9 @@ public class HomeFragment extends BaseFragment {
     
     // 日期格式化
     private SimpleDateFormat yearMonthFormat = new SimpleDateFormat("yyyy年M月", Locale.getDefault());
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM", Locale.getDefault());
+    
+    // 与其他Tab共用的列表数据
+    private FoodListViewModel viewModel;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -91,23 +96,31 @@ public class HomeFragment extends BaseFragment {
             }
         });
 
+        // 滚动到窗口边缘附近时读取相邻的一页
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager == null || viewModel == null) {
+                    return;
+                }
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    viewModel.loadOlder();
+                } else if (dy < 0 && layoutManager.findFirstVisibleItemPosition() < PREFETCH_DISTANCE) {
+                    viewModel.loadNewer();
+                }
+            }
+        });
+
         // 初始化添加美食按钮
         btnAddFood = view.findViewById(R.id.btn_add_food);
         btnAddFood.setOnClickListener(v -> {
             if (getActivity() instanceof MainActivity) {
-                AddFoodFragment addFoodFragment = new AddFoodFragment();
-                
-                // 使用Fragment事务替换当前Fragment，添加动画效果
-                getActivity().getSupportFragmentManager()
-                    .beginTransaction()
-                    .setCustomAnimations(
-                        R.anim.slide_in_right,  // 新Fragment进入动画
-                        R.anim.slide_out_left   // 当前Fragment退出动画
-                    )
-                    .replace(R.id.container, addFoodFragment)
-                    .addToBackStack(null)
-                    .commit();
-                
+                // 首页只是隐藏，返回时不需要重建
+                ((MainActivity) getActivity()).openPage(new AddFoodFragment(),
+                    R.anim.slide_in_right,  // 新Fragment进入动画
+                    R.anim.slide_out_left   // 当前Fragment退出动画
+                );
             }
         });
 
@@ -122,96 +135,55 @@ public class HomeFragment extends BaseFragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        // 移除重复的初始化代码，只保留onCreateView中的初始化
-    }
-
-    // 添加刷新数据的方法
-    public void refreshData() {
-        // 显示加载动画
-        showLoading();
         
-        FoodRepository repository = FoodRepository.getInstance(requireContext());
-        repository.getAllFoodItems(new FoodRepository.FoodListCallback() {
-            @Override
-            public void onFoodListLoaded(List<FoodItem> foodItems) {
-                // 使用安全回调工具类
-                SafeCallback.runIfFragmentAlive(HomeFragment.this, () -> {
-                    // 现在可以安全地使用requireActivity()
-                    requireActivity().runOnUiThread(() -> {
-                        // 更新统计栏
-                        updateStatistics(foodItems);
-                        
-                        // 更新RecyclerView
-                        adapter.setFoodList(foodItems);
-                        
-                        // 隐藏加载动画
-                        hideLoading();
-                        
-                        // 如果没有数据，显示空状态视图
-                        if (foodItems.isEmpty()) {
-                            showEmptyView();
-                        } else {
-                            hideEmptyView();
-                        }
-                    });
-                });
+        // 列表、统计栏和加载状态都来自Activity范围的ViewModel，旋转和切换Tab后不必重新加载
+        viewModel = new ViewModelProvider(requireActivity()).get(FoodListViewModel.class);
+        // 列表只显示从本地数据库分页读取的窗口，记录再多内存中也只有几页
+        viewModel.getPagedFoodItems().observe(getViewLifecycleOwner(), foodItems -> {
+            if (foodItems != null) {
+                showFoodList(foodItems);
             }
-
-            @Override
-            public void onError(Exception e) {
-                SafeCallback.runIfFragmentAlive(HomeFragment.this, () -> {
-                    requireActivity().runOnUiThread(() -> {
-                        Log.e("HomeFragment", "加载数据失败", e);
-                        hideLoading();
-                        // 显示错误信息
-                        Toast.makeText(requireContext(), "加载失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    });
-                });
+        });
+        viewModel.getMonthlySummary().observe(getViewLifecycleOwner(), summary -> {
+            if (summary != null) {
+                updateStatistics(summary);
+            }
+        });
+        viewModel.getLoading().observe(getViewLifecycleOwner(), isLoading -> {
+            if (Boolean.TRUE.equals(isLoading)) {
+                showLoading();
+            } else {
+                hideLoading();
+            }
+        });
+        viewModel.getError().observe(getViewLifecycleOwner(), e -> {
+            if (e != null && isResumed()) {
+                Toast.makeText(requireContext(), "加载失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                viewModel.clearError();
             }
         });
     }
     
-    // 计算并更新统计数据
-    private void updateStatistics(List<FoodItem> foodItems) {
-        // 获取当前年月
-        String currentYearMonth = dateFormat.format(new Date());
-        
-        double totalSpending = 0;
-        double totalRating = 0;
-        int ratingCount = 0;
-        int recordCount = 0;
-        
-        // 遍历所有食物记录，计算统计数据
-        for (FoodItem item : foodItems) {
-            // 检查是否是当前月份的记录
-            if (item.getTime() != null && item.getTime().startsWith(currentYearMonth)) {
-                recordCount++;
-                
-                // 计算总消费
-                try {
-                    String price = item.getPrice();
-                    if (price != null && !price.isEmpty()) {
-                        // 移除价格中的货币符号和其他非数字字符
-                        price = price.replaceAll("[^0-9.]", "");
-                        if (!price.isEmpty()) {
-                            totalSpending += Double.parseDouble(price);
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    // 忽略无法解析的价格
-                }
-                
-                // 计算总评分
-                float rating = item.getRating();
-                if (rating > 0) {
-                    totalRating += rating;
-                    ratingCount++;
-                }
-            }
+    // 将食物列表渲染到RecyclerView
+    private void showFoodList(List<FoodItem> foodItems) {
+        // 更新RecyclerView
+        adapter.setFoodList(foodItems);
+        
+        // 如果没有数据，显示空状态视图
+        if (foodItems.isEmpty()) {
+            showEmptyView();
+        } else {
+            hideEmptyView();
         }
+    }
+    
+    // 更新统计栏，汇总由FoodRepository在记录增删改时维护，不再遍历记录
+    private void updateStatistics(MonthlySummary summary) {
+        double totalSpending = summary.getSpending();
+        int recordCount = summary.recordCount;
         
         // 计算平均评分
-        double averageRating = ratingCount > 0 ? totalRating / ratingCount : 0;
+        double averageRating = summary.getAverageRating();
         
         // 格式化数据
         DecimalFormat priceFormat = new DecimalFormat("#,##0");
@@ -266,6 +238,7 @@ public class HomeFragment extends BaseFragment {
     @Override
     public void onResume() {
         super.onResume();
-        refreshData();
+        // 每次进入都交给仓库，缓存过期时才在后台同步，之后的变化由ViewModel推送
+        viewModel.load();
     }
-} 
\ No newline at end of file
+}
@@ -12,14 +12,14 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.example.tastylog.R;
 import com.example.tastylog.adapter.FoodItemInfoWindow;
 import com.example.tastylog.config.Config;
-import com.example.tastylog.data.FoodRepository;
 import com.example.tastylog.model.FoodItem;
-import com.example.tastylog.utils.FragmentUtils;
 import com.example.tastylog.utils.GeocodingHelper;
+import com.example.tastylog.viewmodel.FoodListViewModel;
 
 import org.osmdroid.api.IMapController;
 import org.osmdroid.events.MapListener;
@@ -43,6 +43,8 @@ public class MapFragment extends BaseFragment implements MapListener {
     private static final String TAG = "MapFragment";
     private MapView mapView;
     private List<Marker> markers = new ArrayList<>();
+    // 当前地图视图是否已缩放到显示全部标记
+    private boolean zoomedToMarkers;
 
     @Nullable
     @Override
@@ -63,6 +65,15 @@ public class MapFragment extends BaseFragment implements MapListener {
         }
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        // 地图初始化失败时显示的是备用视图，不加载数据
+        if (view.findViewById(R.id.map_view) != null) {
+            loadFoodItems();
+        }
+    }
+
     /**
      * 初始化地图
      * 设置地图基本配置和加载数据
@@ -87,49 +98,49 @@ public class MapFragment extends BaseFragment implements MapListener {
             
             // 设置地图监听器
             mapView.addMapListener(this);
-            
-            // 加载数据
-            loadFoodItems();
         } catch (Exception e) {
             Log.e(TAG, "地图初始化失败: " + e.getMessage(), e);
         }
     }
 
-    // 加载美食数据
+    // 加载美食数据，列表由Activity范围的ViewModel提供，有变化时重新添加标记
     private void loadFoodItems() {
-        try {
-            FoodRepository.getInstance(requireContext()).getAllFoodItems(new FoodRepository.FoodListCallback() {
-                @Override
-                public void onFoodListLoaded(List<FoodItem> foodItems) {
-                    requireActivity().runOnUiThread(() -> {
-                        if (foodItems.isEmpty()) {
-                            Log.w(TAG, "没有找到美食数据");
-                            return;
-                        }
-                        
-                        Log.d(TAG, "开始添加美食标记，共" + foodItems.size() + "个");
-                        
-                        for (FoodItem item : foodItems) {
-                            addFoodItemMarker(item);
-                        }
-                        
-                        // 调整地图以显示所有标记
-                        if (!markers.isEmpty()) {
-                            zoomToFitAllMarkers();
-                        }
-                    });
-                }
-                
-                @Override
-                public void onError(Exception e) {
-                    FragmentUtils.safeUIAction(MapFragment.this, () -> {
-                        Toast.makeText(requireContext(), "加载美食数据失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    }, "MapFragment");
-                }
-            });
-        } catch (Exception e) {
-            Log.e(TAG, "加载美食数据异常: " + e.getMessage(), e);
-        }
+        FoodListViewModel viewModel = new ViewModelProvider(requireActivity()).get(FoodListViewModel.class);
+        // 新建的地图视图需要重新缩放一次
+        zoomedToMarkers = false;
+        viewModel.getFoodItems().observe(getViewLifecycleOwner(), foodItems -> {
+            if (foodItems == null) {
+                return;
+            }
+            
+            // 列表变化时会再次回调，清除旧标记避免重复；删光记录或退出登录时也要清除
+            clearFoodItemMarkers();
+            
+            if (foodItems.isEmpty()) {
+                Log.w(TAG, "没有找到美食数据");
+                mapView.invalidate();
+                return;
+            }
+            
+            Log.d(TAG, "开始添加美食标记，共" + foodItems.size() + "个");
+            
+            for (FoodItem item : foodItems) {
+                addFoodItemMarker(item);
+            }
+            
+            // 只在第一次有标记时调整地图以显示所有标记，之后的编辑和同步不改变用户的视野
+            if (!markers.isEmpty() && !zoomedToMarkers) {
+                zoomedToMarkers = true;
+                zoomToFitAllMarkers();
+            }
+        });
+        viewModel.getError().observe(getViewLifecycleOwner(), e -> {
+            if (e != null && isResumed()) {
+                Toast.makeText(requireContext(), "加载美食数据失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                viewModel.clearError();
+            }
+        });
+        viewModel.load();
     }
     
     // 为食品项添加标记
@@ -175,6 +186,12 @@ public class MapFragment extends BaseFragment implements MapListener {
         mapView.invalidate();
     }
     
+    // 移除地图上已有的美食标记
+    private void clearFoodItemMarkers() {
+        mapView.getOverlays().removeAll(markers);
+        markers.clear();
+    }
+    
     private GeoPoint simulateGeoPoint(String location) {
         // 基于中国中心点随机生成坐标
         double baseLat = Config.defaultGeoPoint.getLatitude();
@@ -1,29 +1,45 @@
 package com.example.tastylog.fragment;
 
 import android.app.DatePickerDialog;
+import android.content.res.ColorStateList;
 import android.graphics.Rect;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.util.LruCache;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.widget.NestedScrollView;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.ItemDecoration;
 
 import com.example.tastylog.R;
 import com.example.tastylog.adapter.FoodRecordAdapter;
+import com.example.tastylog.data.FoodFilter;
+import com.example.tastylog.data.FoodPager;
 import com.example.tastylog.data.FoodRepository;
-import com.example.tastylog.data.FoodRepository.FoodListCallback;
-import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.data.FoodStats;
+import com.example.tastylog.data.FoodTable;
+import com.example.tastylog.data.FoodTablePageSource;
+import com.example.tastylog.data.SpendingRollup;
+import com.example.tastylog.utils.FoodValueUtils;
+import com.example.tastylog.utils.Lttb;
+import com.example.tastylog.utils.RatingDistribution;
+import com.example.tastylog.viewmodel.FoodListViewModel;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.charts.PieChart;
 import com.github.mikephil.charting.components.Legend;
@@ -32,10 +48,9 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.data.PieData;
-import com.github.mikephil.charting.data.PieDataSet;
-import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
-import com.github.mikephil.charting.formatter.PercentFormatter;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
@@ -45,19 +60,16 @@ import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.text.DecimalFormat;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * 统计Fragment
@@ -66,6 +78,8 @@ import java.util.TreeMap;
 public class StatsFragment extends BaseFragment {
 
     private static final String TAG = "StatsFragment";
+    // 距离列表窗口边缘还剩多少行时读取下一页
+    private static final int PREFETCH_DISTANCE = 10;
     
     // UI 组件
     private TabLayout viewSwitcher;
@@ -80,7 +94,6 @@ public class StatsFragment extends BaseFragment {
     // 日期格式化
     private SimpleDateFormat yearMonthFormat = new SimpleDateFormat("yyyy年M月", Locale.getDefault());
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM", Locale.getDefault());
-    private SimpleDateFormat fullDateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
     
     // 筛选条件
     private Date startDate;
@@ -91,6 +104,10 @@ public class StatsFragment extends BaseFragment {
     // 列表相关
     private RecyclerView recyclerViewFoodRecords;
     private FoodRecordAdapter foodRecordAdapter;
+    // 列表只显示当前筛选结果中滚动位置附近的几页
+    private FoodPager recordPager;
+    private FoodTablePageSource recordSource;
+    private FoodFilter recordFilter;
 
     // 添加列表视图中的按钮引用
     private Button btnListDateFilter;
@@ -104,6 +121,27 @@ public class StatsFragment extends BaseFragment {
     // 添加位置筛选相关的变量
     private String locationFilter = "";
 
+    // 与其他Tab共用的列表数据
+    private FoodListViewModel viewModel;
+
+    // 每次筛选加一，后台筛选完成时据此丢弃过期的结果
+    private int filterGeneration;
+
+    // 构建图表数据的后台线程，所有统计页共用
+    private static final Executor CHART_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // 最近使用的筛选条件对应的图表数据，保存在Fragment范围的ViewModel中，旋转后仍可使用
+    private ChartCacheViewModel chartCache;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 消费趋势的完整序列，图表中显示的是按可见范围降采样后的点
+    private float[] trendValues;
+
+    // 评分图例容器和已创建的图例行
+    private LinearLayout legendContainer;
+    private final List<LegendRow> legendRows = new ArrayList<>();
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_stats, container, false);
@@ -147,8 +185,21 @@ public class StatsFragment extends BaseFragment {
         // 设置价格范围按钮点击事件
         btnPriceRange.setOnClickListener(v -> showPriceRangePicker());
         
-        // 加载数据
-        loadData();
+        // 数据由Activity范围的ViewModel加载，数据版本变化时按当前条件重新筛选
+        viewModel = new ViewModelProvider(requireActivity()).get(FoodListViewModel.class);
+        chartCache = new ViewModelProvider(this).get(ChartCacheViewModel.class);
+        viewModel.getDataVersion().observe(getViewLifecycleOwner(), version -> {
+            if (version != null) {
+                applyFilter();
+            }
+        });
+        viewModel.getError().observe(getViewLifecycleOwner(), e -> {
+            if (e != null && isResumed()) {
+                hideLoading();
+                showToast("加载数据失败: " + e.getMessage());
+                viewModel.clearError();
+            }
+        });
     }
 
     private void initViews(View view) {
@@ -158,6 +209,9 @@ public class StatsFragment extends BaseFragment {
         btnPriceRange = view.findViewById(R.id.btn_price_range);
         btnListDateFilter = view.findViewById(R.id.btn_date_range_list);
         btnListFilter = view.findViewById(R.id.btn_filter);
+        legendContainer = view.findViewById(R.id.rating_legend_container);
+        // 视图重建后旧的图例行已失效
+        legendRows.clear();
 
         // 获取视图容器
         View listViewContainer = view.findViewById(R.id.list_view_container);
@@ -244,6 +298,25 @@ public class StatsFragment extends BaseFragment {
             // 初始化适配器
             foodRecordAdapter = new FoodRecordAdapter();
             recyclerViewFoodRecords.setAdapter(foodRecordAdapter);
+            recordPager = createRecordPager();
+            recordFilter = null;
+
+            // 滚动到窗口边缘附近时读取相邻的一页，离开窗口的页被丢弃
+            recyclerViewFoodRecords.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                    LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                    if (layoutManager == null || recordSource == null) {
+                        return;
+                    }
+                    if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                            >= foodRecordAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                        recordPager.loadOlder();
+                    } else if (dy < 0 && layoutManager.findFirstVisibleItemPosition() < PREFETCH_DISTANCE) {
+                        recordPager.loadNewer();
+                    }
+                }
+            });
         }
 
         // 添加分割线装饰
@@ -279,6 +352,54 @@ public class StatsFragment extends BaseFragment {
         lineChart.setDrawGridBackground(false);
         lineChart.setExtraOffsets(10, 10, 10, 10);
         
+        // 缩放或拖动结束后按可见范围重新取样
+        lineChart.setOnChartGestureListener(new OnChartGestureListener() {
+            @Override
+            public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+                if (lastPerformedGesture == ChartTouchListener.ChartGesture.X_ZOOM
+                        || lastPerformedGesture == ChartTouchListener.ChartGesture.PINCH_ZOOM
+                        || lastPerformedGesture == ChartTouchListener.ChartGesture.DOUBLE_TAP
+                        || lastPerformedGesture == ChartTouchListener.ChartGesture.DRAG) {
+                    resampleVisibleTrend();
+                }
+            }
+            
+            @Override
+            public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+                // 不需要处理
+            }
+            
+            @Override
+            public void onChartLongPressed(MotionEvent me) {
+                // 不需要处理
+            }
+            
+            @Override
+            public void onChartDoubleTapped(MotionEvent me) {
+                // 不需要处理
+            }
+            
+            @Override
+            public void onChartSingleTapped(MotionEvent me) {
+                // 不需要处理
+            }
+            
+            @Override
+            public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {
+                // 不需要处理
+            }
+            
+            @Override
+            public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+                // 不需要处理
+            }
+            
+            @Override
+            public void onChartTranslate(MotionEvent me, float dX, float dY) {
+                // 不需要处理
+            }
+        });
+        
         // 设置X轴
         XAxis xAxis = lineChart.getXAxis();
         xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
@@ -456,156 +577,118 @@ public class StatsFragment extends BaseFragment {
     }
 
     private void loadData() {
-        showLoading();
-        
-        FoodRepository.getInstance(requireContext()).getAllFoodItems(new FoodListCallback() {
-            @Override
-            public void onFoodListLoaded(List<FoodItem> foodItems) {
-                hideLoading();
-                
-                // 筛选数据
-                List<FoodItem> filteredItems = filterFoodItems(foodItems);
-                
-                if (filteredItems.isEmpty()) {
-                    showEmptyView();
-                } else {
-                    hideEmptyView();
-                    // 更新图表
-                    updateCharts(filteredItems);
-                    // 更新列表视图
-                    updateListView(filteredItems);
-                }
-            }
-            
-            @Override
-            public void onError(Exception e) {
-                hideLoading();
-                showToast("加载数据失败: " + e.getMessage());
-                Log.e(TAG, "加载数据失败", e);
-            }
-        });
+        if (viewModel.getDataVersion().getValue() == null) {
+            // 数据还没有加载，加载完成后由观察者触发筛选
+            showLoading();
+            viewModel.load();
+            return;
+        }
+        applyFilter();
     }
 
-    private List<FoodItem> filterFoodItems(List<FoodItem> foodItems) {
-        List<FoodItem> result = new ArrayList<>();
+    private void applyFilter() {
+        // 未登录或没有记录时列式快照为空表，筛选结果为空，显示空视图
+        FoodRepository repository = FoodRepository.getInstance(requireContext());
+        // 同样的筛选条件和数据已经算过时直接使用缓存的图表数据
+        FoodFilter filter = buildFilter();
+        int generation = ++filterGeneration;
+        long dataVersion = repository.getDataVersion();
+        ChartCacheViewModel chartCache = this.chartCache;
+        ChartSnapshot cached = chartCache.get(filter, dataVersion);
+        if (cached != null) {
+            hideLoading();
+            showSnapshot(filter, cached);
+            return;
+        }
         
-        for (FoodItem item : foodItems) {
-            // 检查日期范围
-            if (startDate != null && endDate != null) {
-                try {
-                    Date itemDate = fullDateFormat.parse(item.getTime().split(" ")[0]);
-                    if (itemDate == null || itemDate.before(startDate) || itemDate.after(endDate)) {
-                        continue;
-                    }
-                } catch (ParseException e) {
-                    Log.e(TAG, "日期解析错误", e);
-                    continue;
-                }
+        // 在后台按筛选条件扫描缓存的列式快照，再准备图表数据，只处理最后一次请求的结果
+        int[] palette = getRatingPalette();
+        int valueLineColor = getResources().getColor(R.color.gray_600);
+        int valueTextColor = getResources().getColor(R.color.gray_800);
+        // 结果带有它所对应的数据版本和消费序列，后台构建期间数据再变化也不会错配
+        repository.filterFoodItems(filter, (table, rows, stats, resultVersion, rollup) -> {
+            if (generation != filterGeneration || getView() == null) {
+                return;
             }
-            
-            // 检查价格范围
-            if (minPrice > 0 || maxPrice < 500) {
-                try {
-                    double price = Double.parseDouble(item.getPrice().replace("¥", ""));
-                    if (price < minPrice || price > maxPrice) {
-                        continue;
+            CHART_EXECUTOR.execute(() -> {
+                ChartSnapshot snapshot = ChartSnapshot.build(filter, table, rows, stats, rollup,
+                        palette, valueLineColor, valueTextColor);
+                chartCache.put(filter, resultVersion, snapshot);
+                mainHandler.post(() -> {
+                    if (generation != filterGeneration || getView() == null) {
+                        return;
                     }
-                } catch (NumberFormatException | NullPointerException e) {
-                    // 价格格式无效，跳过
-                    continue;
-                }
-            }
-            
-            // 检查位置
-            if (!locationFilter.isEmpty() && item.getLocation() != null) {
-                if (!item.getLocation().toLowerCase().contains(locationFilter.toLowerCase())) {
-                    continue;
-                }
-            }
-            
-            // 检查评分范围
-            int rating = (int) item.getRating();
-            if (rating < minRating || rating > maxRating) {
-                continue;
-            }
-            
-            // 通过所有筛选条件
-            result.add(item);
+                    hideLoading();
+                    showSnapshot(filter, snapshot);
+                });
+            });
+        });
+    }
+
+    /**
+     * 把当前的筛选条件编译为FoodFilter，未启用的条件不加入
+     */
+    private FoodFilter buildFilter() {
+        FoodFilter.Builder builder = new FoodFilter.Builder();
+        if (startDate != null && endDate != null) {
+            builder.dateRange(toEpochDay(startDate), toEpochDay(endDate));
+        }
+        if (minPrice > 0 || maxPrice < 500) {
+            builder.priceRange(Math.round(minPrice * 100), Math.round(maxPrice * 100));
+        }
+        if (minRating > 0 || maxRating < 5) {
+            builder.ratingRange(minRating, maxRating);
+        }
+        builder.location(locationFilter);
+        if (!"全部".equals(currentFoodType)) {
+            builder.tag(currentFoodType);
+        }
+        return builder.build();
+    }
+
+    private static int toEpochDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return FoodValueUtils.toEpochDay(calendar);
+    }
+
+    private void showSnapshot(FoodFilter filter, ChartSnapshot snapshot) {
+        if (snapshot.rows.length == 0) {
+            showEmptyView();
+        } else {
+            hideEmptyView();
+            // 更新图表
+            updateCharts(snapshot);
+            // 更新列表视图
+            updateListView(filter, snapshot.recordSource);
         }
-        
-        return result;
     }
 
     /**
      * 更新图表
      * 根据筛选后的数据更新统计图表
      * 
-     * @param foodItems 筛选后的食物记录列表
+     * @param snapshot 已在后台准备好的图表数据
      */
-    private void updateCharts(List<FoodItem> foodItems) {
-        if (foodItems.isEmpty()) {
+    private void updateCharts(ChartSnapshot snapshot) {
+        if (snapshot.rows.length == 0) {
             showEmptyCharts();
             return;
         }
         
         // 更新消费趋势图
-        updateSpendingTrendChart(foodItems);
+        updateSpendingTrendChart(snapshot);
         
         // 更新评分分布图
-        updateRatingDistributionChart(foodItems);
+        updateRatingDistributionChart(snapshot);
     }
 
-    private void updateSpendingTrendChart(List<FoodItem> foodItems) {
-        // 按日期分组，计算每日消费
-        Map<String, Double> dailySpending = new TreeMap<>(); // 使用TreeMap保证按日期排序
+    private void updateSpendingTrendChart(ChartSnapshot snapshot) {
+        // 完整序列保存下来供缩放时取样
+        trendValues = snapshot.trendValues;
         
-        SimpleDateFormat dayFormat = new SimpleDateFormat("MM-dd", Locale.getDefault());
-        
-        for (FoodItem item : foodItems) {
-            try {
-                // 解析日期
-                Date itemDate = fullDateFormat.parse(item.getTime());
-                if (itemDate == null) continue;
-                
-                String day = dayFormat.format(itemDate);
-                
-                // 解析价格
-                double price = 0;
-                try {
-                    String priceStr = item.getPrice();
-                    if (priceStr != null && !priceStr.isEmpty()) {
-                        priceStr = priceStr.replaceAll("[^0-9.]", "");
-                        if (!priceStr.isEmpty()) {
-                            price = Double.parseDouble(priceStr);
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    // 忽略无法解析的价格
-                    continue;
-                }
-                
-                // 累加到对应日期
-                dailySpending.put(day, dailySpending.getOrDefault(day, 0.0) + price);
-                
-            } catch (ParseException e) {
-                // 忽略日期解析错误
-                Log.e(TAG, "日期解析错误: " + item.getTime(), e);
-            }
-        }
-        
-        // 准备折线图数据
-        List<Entry> entries = new ArrayList<>();
-        List<String> labels = new ArrayList<>();
-        
-        int i = 0;
-        for (Map.Entry<String, Double> entry : dailySpending.entrySet()) {
-            entries.add(new Entry(i, entry.getValue().floatValue()));
-            labels.add(entry.getKey());
-            i++;
-        }
-        
-        // 创建数据集
-        LineDataSet dataSet = new LineDataSet(entries, "日消费金额");
+        // 创建数据集，初始按整个范围降采样
+        LineDataSet dataSet = new LineDataSet(sampleTrendEntries(0, trendValues.length), "日消费金额");
         dataSet.setColor(getResources().getColor(R.color.orange_500));
         dataSet.setLineWidth(2f);
         dataSet.setCircleColor(getResources().getColor(R.color.orange_500));
@@ -616,7 +699,7 @@ public class StatsFragment extends BaseFragment {
         dataSet.setFillColor(getResources().getColor(R.color.orange_200));
         
         // 设置X轴标签
-        lineChart.getXAxis().setValueFormatter(new IndexAxisValueFormatter(labels));
+        lineChart.getXAxis().setValueFormatter(new IndexAxisValueFormatter(snapshot.trendLabels));
         
         // 创建LineData对象并设置到图表
         LineData lineData = new LineData(dataSet);
@@ -626,130 +709,212 @@ public class StatsFragment extends BaseFragment {
         lineChart.invalidate();
     }
 
-    private void updateRatingDistributionChart(List<FoodItem> foodItems) {
-        // 统计各评分数量
-        Map<Float, Integer> ratingCounts = new HashMap<>();
-        
-        for (FoodItem item : foodItems) {
-            float rating = item.getRating();
-            if (rating > 0) {
-                // 四舍五入到最近的0.5
-                rating = Math.round(rating * 2) / 2.0f;
-                ratingCounts.put(rating, ratingCounts.getOrDefault(rating, 0) + 1);
-            }
+    /**
+     * 缩放或拖动结束后按当前可见范围重新取样，放大时逐步恢复到原始的每个点
+     */
+    private void resampleVisibleTrend() {
+        if (trendValues == null || lineChart.getData() == null || lineChart.getData().getDataSetCount() == 0) {
+            return;
         }
-        
-        // 准备饼图数据
-        List<PieEntry> entries = new ArrayList<>();
-        
-        // 用一个TreeMap来对评分进行排序(从高到低)
-        TreeMap<Float, Integer> sortedRatings = new TreeMap<>(Collections.reverseOrder());
-        sortedRatings.putAll(ratingCounts);
-        
-        for (Map.Entry<Float, Integer> entry : sortedRatings.entrySet()) {
-            entries.add(new PieEntry(entry.getValue(), entry.getKey() + "星"));
+        int from = Math.max(0, (int) Math.floor(lineChart.getLowestVisibleX()));
+        int to = Math.min(trendValues.length, (int) Math.ceil(lineChart.getHighestVisibleX()) + 1);
+        if (from >= to) {
+            return;
         }
         
-        // 创建数据集
-        PieDataSet dataSet = new PieDataSet(entries, "评分分布");
+        List<Entry> entries = sampleTrendEntries(from, to);
+        // 保留完整序列的首尾两点，避免X轴范围随取样变化
+        if (from > 0) {
+            entries.add(0, new Entry(0, trendValues[0]));
+        }
+        if (to < trendValues.length) {
+            int last = trendValues.length - 1;
+            entries.add(new Entry(last, trendValues[last]));
+        }
         
-        // 设置更和谐的颜色
-        int[] MATERIAL_COLORS = {
+        LineDataSet dataSet = (LineDataSet) lineChart.getData().getDataSetByIndex(0);
+        dataSet.setValues(entries);
+        lineChart.getData().notifyDataChanged();
+        lineChart.notifyDataSetChanged();
+        lineChart.invalidate();
+    }
+
+    /**
+     * 用LTTB把trendValues[from, to)降到图表宽度的点数，x保持为完整序列的下标
+     */
+    private List<Entry> sampleTrendEntries(int from, int to) {
+        int threshold = (int) lineChart.getViewPortHandler().contentWidth();
+        if (threshold <= 0) {
+            // 图表未布局（如停留在列表页）时按屏幕宽度估算
+            threshold = getResources().getDisplayMetrics().widthPixels;
+        }
+        int[] indices = Lttb.select(trendValues, from, to, threshold);
+        List<Entry> entries = new ArrayList<>(indices.length + 2);
+        for (int index : indices) {
+            entries.add(new Entry(index, trendValues[index]));
+        }
+        return entries;
+    }
+
+    private static String formatTrendLabel(int granularity, int epochDay) {
+        int[] date = FoodValueUtils.fromEpochDay(epochDay);
+        if (granularity == SpendingRollup.GRANULARITY_MONTH) {
+            return String.format(Locale.getDefault(), "%d-%02d", date[0], date[1]);
+        }
+        // 按日为当天，按周为该周的周一
+        return String.format(Locale.getDefault(), "%02d-%02d", date[1], date[2]);
+    }
+
+    private int[] getRatingPalette() {
+        return new int[]{
             getResources().getColor(R.color.orange_500),
             getResources().getColor(R.color.orange_300),
             getResources().getColor(R.color.green_500),
             getResources().getColor(R.color.blue_500),
             getResources().getColor(R.color.purple_500)
         };
-        dataSet.setColors(MATERIAL_COLORS);
-        
-        // 调整切片之间的间距
-        dataSet.setSliceSpace(3f);
-        dataSet.setSelectionShift(6f);
-        
-        // 设置值的格式和位置
-        dataSet.setYValuePosition(PieDataSet.ValuePosition.OUTSIDE_SLICE);
-        dataSet.setValueLinePart1Length(0.4f);
-        dataSet.setValueLinePart2Length(0.4f);
-        dataSet.setValueLineColor(getResources().getColor(R.color.gray_600));
-        
-        // 创建PieData对象并设置到图表
-        PieData pieData = new PieData(dataSet);
-        pieData.setValueFormatter(new PercentFormatter(pieChart));
-        pieData.setValueTextSize(12f);
-        pieData.setValueTextColor(getResources().getColor(R.color.gray_800));
-        
-        // 设置数据
-        pieChart.setData(pieData);
+    }
+
+    private void updateRatingDistributionChart(ChartSnapshot snapshot) {
+        // PieData已在后台创建好
+        pieChart.setData(snapshot.pieData);
         
         // 更新图例
-        updatePieChartLegends(sortedRatings);
+        updatePieChartLegends(snapshot.ratingDistribution);
         
         // 刷新图表
         pieChart.invalidate();
     }
 
-    // 添加一个方法来更新自定义图例
-    private void updatePieChartLegends(TreeMap<Float, Integer> ratingCounts) {
-        // 获取各个图例视图
-        View legend5 = getView().findViewById(R.id.legend_5_star);
-        View legend4 = getView().findViewById(R.id.legend_4_star);
-        View legend3 = getView().findViewById(R.id.legend_3_star);
-        View legend2 = getView().findViewById(R.id.legend_2_star);
-        
-        // 隐藏所有图例
-        if (legend5 != null) legend5.setVisibility(View.GONE);
-        if (legend4 != null) legend4.setVisibility(View.GONE);
-        if (legend3 != null) legend3.setVisibility(View.GONE);
-        if (legend2 != null) legend2.setVisibility(View.GONE);
-        
-        // 根据实际数据显示对应图例
-        int index = 0;
-        for (Map.Entry<Float, Integer> entry : ratingCounts.entrySet()) {
-            float rating = entry.getKey();
-            int count = entry.getValue();
-            
-            View legendView = null;
-            if (rating == 5.0f && legend5 != null) {
-                legendView = legend5;
-            } else if (rating == 4.0f && legend4 != null) {
-                legendView = legend4;
-            } else if (rating == 3.0f && legend3 != null) {
-                legendView = legend3;
-            } else if (rating == 2.0f && legend2 != null) {
-                legendView = legend2;
+    /**
+     * 更新饼图下方的图例，复用已创建的图例行，不够时才创建，多余的隐藏
+     */
+    private void updatePieChartLegends(RatingDistribution distribution) {
+        if (legendContainer == null) {
+            return;
+        }
+        
+        for (int i = 0; i < distribution.size(); i++) {
+            LegendRow row;
+            if (i < legendRows.size()) {
+                row = legendRows.get(i);
+            } else {
+                row = new LegendRow(getLayoutInflater().inflate(
+                        R.layout.item_pie_chart_legend, legendContainer, false));
+                legendContainer.addView(row.itemView);
+                legendRows.add(row);
             }
-            
-            if (legendView != null) {
-                // 设置颜色指示器
-                ImageView colorIndicator = legendView.findViewById(R.id.legend_color);
-                if (colorIndicator != null && index < 5) {
-                    int[] MATERIAL_COLORS = {
-                        getResources().getColor(R.color.orange_500),
-                        getResources().getColor(R.color.orange_300),
-                        getResources().getColor(R.color.green_500),
-                        getResources().getColor(R.color.blue_500),
-                        getResources().getColor(R.color.purple_500)
-                    };
-                    colorIndicator.setColorFilter(MATERIAL_COLORS[index]);
-                }
-                
-                // 设置评分文本
-                TextView ratingText = legendView.findViewById(R.id.legend_text);
-                if (ratingText != null) {
-                    ratingText.setText(rating + "星评分");
+            row.bind(distribution.ratings[i], distribution.counts[i], distribution.colors[i]);
+        }
+        
+        for (int i = distribution.size(); i < legendRows.size(); i++) {
+            legendRows.get(i).itemView.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * 图例行，缓存子视图避免每次查找
+     */
+    private static class LegendRow {
+        final View itemView;
+        final View colorView;
+        final TextView ratingText;
+        final TextView countText;
+
+        LegendRow(View itemView) {
+            this.itemView = itemView;
+            colorView = itemView.findViewById(R.id.legend_color);
+            ratingText = itemView.findViewById(R.id.legend_text);
+            countText = itemView.findViewById(R.id.legend_count);
+        }
+
+        void bind(float rating, int count, int color) {
+            colorView.setBackgroundTintList(ColorStateList.valueOf(color));
+            ratingText.setText(rating + "星评分");
+            countText.setText(count + "条");
+            itemView.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /**
+     * 按筛选条件缓存图表数据，只保存同一数据版本的结果
+     * 缓存的内容不引用任何视图，可以在图表重建后继续使用
+     */
+    public static class ChartCacheViewModel extends ViewModel {
+        private final LruCache<FoodFilter, ChartSnapshot> snapshots = new LruCache<>(8);
+        private long dataVersion = -1;
+
+        synchronized ChartSnapshot get(FoodFilter filter, long dataVersion) {
+            // 数据有变化时整体作废
+            if (this.dataVersion != dataVersion) {
+                snapshots.evictAll();
+                this.dataVersion = dataVersion;
+                return null;
+            }
+            return snapshots.get(filter);
+        }
+
+        synchronized void put(FoodFilter filter, long dataVersion, ChartSnapshot snapshot) {
+            if (this.dataVersion == dataVersion) {
+                snapshots.put(filter, snapshot);
+            }
+        }
+    }
+
+    /**
+     * 一组筛选条件下的结果和图表数据，在后台线程构建，之后只读
+     */
+    private static class ChartSnapshot {
+        final FoodTable table;
+        final int[] rows;
+        // 消费趋势的完整序列和X轴标签
+        final float[] trendValues;
+        final List<String> trendLabels;
+        final RatingDistribution ratingDistribution;
+        final PieData pieData;
+        // 列表按日期排好序的分页数据源
+        final FoodTablePageSource recordSource;
+
+        private ChartSnapshot(FoodTable table, int[] rows, float[] trendValues, List<String> trendLabels,
+                              RatingDistribution ratingDistribution, PieData pieData,
+                              FoodTablePageSource recordSource) {
+            this.table = table;
+            this.rows = rows;
+            this.trendValues = trendValues;
+            this.trendLabels = trendLabels;
+            this.ratingDistribution = ratingDistribution;
+            this.pieData = pieData;
+            this.recordSource = recordSource;
+        }
+
+        static ChartSnapshot build(FoodFilter filter, FoodTable table, int[] rows, FoodStats stats,
+                                   SpendingRollup rollup, int[] palette, int valueLineColor, int valueTextColor) {
+            float[] values;
+            List<String> labels = new ArrayList<>();
+            if (filter.hasDateRange() && filter.isDateOnly()) {
+                // 只按日期筛选时趋势图直接查询预先汇总的时间序列；
+                // 记录列表和评分分布仍来自上面对筛选出的行的扫描
+                int span = filter.getEndDay() - filter.getStartDay() + 1;
+                int granularity = span <= 62 ? SpendingRollup.GRANULARITY_DAY
+                        : span <= 366 ? SpendingRollup.GRANULARITY_WEEK : SpendingRollup.GRANULARITY_MONTH;
+                SpendingRollup.Series series = rollup.getSeries(granularity, filter.getStartDay(), filter.getEndDay());
+                values = new float[series.size()];
+                for (int i = 0; i < series.size(); i++) {
+                    values[i] = series.cents[i] / 100f;
+                    labels.add(formatTrendLabel(granularity, series.startDays[i]));
                 }
-                
-                // 设置数量
-                TextView countText = legendView.findViewById(R.id.legend_count);
-                if (countText != null) {
-                    countText.setText(count + "条");
+            } else {
+                // 每日消费已在后台统计好
+                values = new float[stats.days.length];
+                for (int i = 0; i < stats.days.length; i++) {
+                    values[i] = stats.dayCents[i] / 100f;
+                    labels.add(formatTrendLabel(SpendingRollup.GRANULARITY_DAY, stats.days[i]));
                 }
-                
-                // 显示图例
-                legendView.setVisibility(View.VISIBLE);
-                index++;
             }
+            RatingDistribution distribution = RatingDistribution.build(
+                    stats.ratingHistogram, palette, valueLineColor, valueTextColor);
+            return new ChartSnapshot(table, rows, values, labels, distribution, distribution.createPieData(),
+                    new FoodTablePageSource(table, rows));
         }
     }
 
@@ -757,6 +922,10 @@ public class StatsFragment extends BaseFragment {
         // 清空图表数据
         lineChart.clear();
         pieChart.clear();
+        trendValues = null;
+        for (LegendRow row : legendRows) {
+            row.itemView.setVisibility(View.GONE);
+        }
         
         // 显示空态提示
         lineChart.setNoDataText("暂无消费数据");
@@ -788,7 +957,8 @@ public class StatsFragment extends BaseFragment {
     @Override
     public void onResume() {
         super.onResume();
-        loadData();
+        // 每次进入都交给仓库，缓存过期时才在后台同步，之后的变化由ViewModel推送
+        viewModel.load();
     }
 
     @Override
@@ -797,10 +967,31 @@ public class StatsFragment extends BaseFragment {
     }
 
     // 添加更新列表视图的方法
-    private void updateListView(List<FoodItem> foodItems) {
-        if (foodRecordAdapter != null) {
-            foodRecordAdapter.setData(foodItems);
+    private void updateListView(FoodFilter filter, FoodTablePageSource source) {
+        if (recordPager == null) {
+            return;
         }
+        recordSource = source;
+        if (!filter.equals(recordFilter)) {
+            // 筛选条件变了从最新的记录开始显示；只是数据变化时保持当前窗口
+            recordFilter = filter;
+            recordPager = createRecordPager();
+            recyclerViewFoodRecords.scrollToPosition(0);
+        }
+        recordPager.refresh();
+    }
+
+    /**
+     * 从当前筛选结果分页读取，筛选结果更新后仍读取最新的数据源
+     */
+    private FoodPager createRecordPager() {
+        return new FoodPager(
+                (anchor, older, inclusive, limit, callback) ->
+                        recordSource.loadPage(anchor, older, inclusive, limit, callback),
+                window -> {
+                    FoodTablePageSource source = recordSource;
+                    foodRecordAdapter.setData(window, source::getDayCents);
+                });
     }
 
     // 添加空视图相关方法
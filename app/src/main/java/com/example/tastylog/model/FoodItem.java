@@ -3,6 +3,8 @@ package com.example.tastylog.model;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import com.example.tastylog.utils.FoodValueUtils;
+
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,7 +19,12 @@ public class FoodItem implements Parcelable, Serializable {
     private String title;
     private String time;
     private float rating;
+    // 为null时由priceCents生成
     private String price;
+    // 以下字段在设置价格和时间时解析一次，统计和筛选直接使用
+    private long priceCents;
+    private int epochDay = FoodValueUtils.NO_DATE;
+    private long epochMillis = Long.MIN_VALUE;
     private List<String> tags;
     private String imageUrl;
     private String notes;
@@ -35,9 +42,9 @@ public class FoodItem implements Parcelable, Serializable {
     public FoodItem(String title, String time, float rating, String price, List<String> tags, String imageUrl, String notes, String location) {
         this.id = UUID.randomUUID().toString();
         this.title = title;
-        this.time = time;
+        setTime(time);
         this.rating = rating;
-        this.price = price;
+        setPrice(price);
         this.tags = tags;
         this.imageUrl = imageUrl;
         this.notes = notes;
@@ -52,13 +59,49 @@ public class FoodItem implements Parcelable, Serializable {
     public void setTitle(String title) { this.title = title; }
 
     public String getTime() { return time; }
-    public void setTime(String time) { this.time = time; }
+    public void setTime(String time) {
+        this.time = time;
+        this.epochDay = FoodValueUtils.parseEpochDay(time);
+        this.epochMillis = FoodValueUtils.parseEpochMillis(time);
+    }
+
+    /**
+     * 记录日期，自1970-01-01起的天数，时间无法解析时为FoodValueUtils.NO_DATE
+     */
+    public int getEpochDay() { return epochDay; }
+
+    /**
+     * 记录时间的毫秒数，只用于排序和比较，时间无法解析时为Long.MIN_VALUE
+     */
+    public long getEpochMillis() { return epochMillis; }
 
     public float getRating() { return rating; }
     public void setRating(float rating) { this.rating = rating; }
 
-    public String getPrice() { return price; }
-    public void setPrice(String price) { this.price = price; }
+    public String getPrice() {
+        if (price == null) {
+            price = FoodValueUtils.formatPrice(priceCents);
+        }
+        return price;
+    }
+
+    public void setPrice(String price) {
+        this.price = price;
+        this.priceCents = FoodValueUtils.parsePriceCents(price);
+    }
+
+    /**
+     * 价格（分）
+     */
+    public long getPriceCents() { return priceCents; }
+
+    /**
+     * 直接设置价格（分），显示用的价格字符串在需要时再生成
+     */
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
+        this.price = null;
+    }
 
     public List<String> getTags() { return tags; }
     public void setTags(List<String> tags) { this.tags = tags; }
@@ -92,9 +135,9 @@ public class FoodItem implements Parcelable, Serializable {
     protected FoodItem(Parcel in) {
         id = in.readString();
         title = in.readString();
-        time = in.readString();
+        setTime(in.readString());
         rating = in.readFloat();
-        price = in.readString();
+        setPrice(in.readString());
         tags = new ArrayList<>();
         in.readStringList(tags);
         imageUrl = in.readString();
@@ -110,7 +153,7 @@ public class FoodItem implements Parcelable, Serializable {
         dest.writeString(title);
         dest.writeString(time);
         dest.writeFloat(rating);
-        dest.writeString(price);
+        dest.writeString(getPrice());
         dest.writeStringList(tags);
         dest.writeString(imageUrl);
         dest.writeString(notes);
@@ -0,0 +1,206 @@
+package com.example.tastylog.utils;
+
+import java.util.Calendar;
+
+/**
+ * 美食记录字段解析工具类
+ *
+ * 把价格和时间字符串一次性解析为整数，供统计和筛选直接使用。
+ * 日期按公历换算为自1970-01-01起的天数，不依赖时区
+ */
+public final class FoodValueUtils {
+
+    // 时间无法解析时的epochDay
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final int DAYS_PER_400_YEARS = 146097;
+    // 0000-03-01到1970-01-01的天数
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    private FoodValueUtils() {
+    }
+
+    /**
+     * 解析价格字符串，如"¥12.5"
+     *
+     * @param price 价格字符串
+     * @return 价格（分），无法解析时返回0
+     */
+    public static long parsePriceCents(String price) {
+        if (price == null || price.isEmpty()) {
+            return 0;
+        }
+        long yuan = 0;
+        long cents = 0;
+        int fractionDigits = -1;
+        boolean hasDigit = false;
+        for (int i = 0; i < price.length(); i++) {
+            char c = price.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+                if (fractionDigits < 0) {
+                    yuan = yuan * 10 + (c - '0');
+                } else if (fractionDigits < 2) {
+                    cents = cents * 10 + (c - '0');
+                    fractionDigits++;
+                } else if (fractionDigits == 2) {
+                    // 第三位小数四舍五入
+                    if (c >= '5') {
+                        cents++;
+                    }
+                    fractionDigits++;
+                }
+            } else if (c == '.') {
+                if (fractionDigits >= 0) {
+                    // 与原来的Double.parseDouble一致，多个小数点视为无效
+                    return 0;
+                }
+                fractionDigits = 0;
+            }
+        }
+        if (!hasDigit) {
+            return 0;
+        }
+        if (fractionDigits == 1) {
+            cents *= 10;
+        }
+        return yuan * 100 + cents;
+    }
+
+    /**
+     * 把价格（分）格式化为显示用的字符串，格式与原来的"¥" + double一致
+     *
+     * @param priceCents 价格（分）
+     * @return 如"¥12.5"
+     */
+    public static String formatPrice(long priceCents) {
+        return "¥" + (priceCents / 100.0);
+    }
+
+    /**
+     * 解析"yyyy-MM-dd"开头的时间字符串
+     *
+     * @param time 时间字符串
+     * @return 自1970-01-01起的天数，无法解析时返回NO_DATE
+     */
+    public static int parseEpochDay(String time) {
+        if (time == null || time.length() < 10 || time.charAt(4) != '-' || time.charAt(7) != '-') {
+            return NO_DATE;
+        }
+        int year = parseDigits(time, 0, 4);
+        int month = parseDigits(time, 5, 7);
+        int day = parseDigits(time, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return NO_DATE;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * 解析"yyyy-MM-dd[ HH:mm[:ss]]"格式的时间字符串
+     *
+     * 按记录中的本地时间直接换算，不做时区转换，只用于排序和比较
+     *
+     * @param time 时间字符串
+     * @return 毫秒数，无法解析时返回Long.MIN_VALUE
+     */
+    public static long parseEpochMillis(String time) {
+        int epochDay = parseEpochDay(time);
+        if (epochDay == NO_DATE) {
+            return Long.MIN_VALUE;
+        }
+        long millis = epochDay * MILLIS_PER_DAY;
+        if (time.length() >= 16 && time.charAt(13) == ':') {
+            int hour = parseDigits(time, 11, 13);
+            int minute = parseDigits(time, 14, 16);
+            int second = time.length() >= 19 && time.charAt(16) == ':' ? parseDigits(time, 17, 19) : 0;
+            if (hour >= 0 && minute >= 0 && second >= 0) {
+                millis += ((hour * 60L + minute) * 60 + second) * 1000;
+            }
+        }
+        return millis;
+    }
+
+    /**
+     * 公历日期转换为自1970-01-01起的天数
+     *
+     * @param month 1-12
+     */
+    public static int toEpochDay(int year, int month, int day) {
+        // 以3月为一年的开始，闰日落在年末
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Calendar当天对应的天数
+     */
+    public static int toEpochDay(Calendar calendar) {
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * 天数转换为公历日期
+     *
+     * @return {年, 月(1-12), 日}
+     */
+    public static int[] fromEpochDay(int epochDay) {
+        int z = epochDay + DAYS_0000_TO_1970;
+        int era = Math.floorDiv(z, DAYS_PER_400_YEARS);
+        int dayOfEra = z - era * DAYS_PER_400_YEARS;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return new int[]{year, month, day};
+    }
+
+    /**
+     * 天数所在的年月
+     *
+     * @return 年 * 100 + 月，如202503
+     */
+    public static int toYearMonth(int epochDay) {
+        int[] date = fromEpochDay(epochDay);
+        return date[0] * 100 + date[1];
+    }
+
+    /**
+     * Calendar当前所在的年月
+     *
+     * @return 年 * 100 + 月，如202503
+     */
+    public static int toYearMonth(Calendar calendar) {
+        return calendar.get(Calendar.YEAR) * 100 + calendar.get(Calendar.MONTH) + 1;
+    }
+
+    /**
+     * 星期几
+     *
+     * @return 0为周日，6为周六
+     */
+    public static int dayOfWeek(int epochDay) {
+        // 1970-01-01是周四
+        return Math.floorMod(epochDay + 4, 7);
+    }
+
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.tastylog.utils;
+
+/**
+ * Largest-Triangle-Three-Buckets降采样
+ *
+ * 把折线按顺序分成若干桶，每个桶只保留与前一个选中点、后一个桶的平均点
+ * 构成三角形面积最大的点，首尾两点总是保留。点数降到图表像素宽度左右时
+ * 折线形状基本不变。序列的x为下标
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * 从values[from, to)中选出至多threshold个点
+     *
+     * @param values 完整序列的y值
+     * @param from 起始下标（含）
+     * @param to 结束下标（不含）
+     * @param threshold 最多保留的点数，小于3时不降采样
+     * @return 选中点的下标，升序
+     */
+    public static int[] select(float[] values, int from, int to, int threshold) {
+        int count = to - from;
+        if (threshold < 3 || count <= threshold) {
+            int[] all = new int[Math.max(count, 0)];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = from + i;
+            }
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        int size = 0;
+        // 首尾两点之外的点平均分到threshold - 2个桶中
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+        int a = from;
+        selected[size++] = a;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // 下一个桶的平均点，最后一个桶之后是终点
+            int nextStart = from + (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min(from + (int) ((bucket + 2) * bucketSize) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += i;
+                avgY += values[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            // 当前桶中与a和平均点构成最大三角形的点
+            int start = from + (int) (bucket * bucketSize) + 1;
+            int end = from + (int) ((bucket + 1) * bucketSize) + 1;
+            double ax = a;
+            double ay = values[a];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (values[i] - ay) - (ax - i) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            selected[size++] = maxIndex;
+            a = maxIndex;
+        }
+
+        selected[size] = to - 1;
+        return selected;
+    }
+}
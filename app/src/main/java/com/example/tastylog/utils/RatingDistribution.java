@@ -0,0 +1,120 @@
+package com.example.tastylog.utils;
+
+import com.example.tastylog.data.FoodStats;
+import com.github.mikephil.charting.data.PieData;
+import com.github.mikephil.charting.data.PieDataSet;
+import com.github.mikephil.charting.data.PieEntry;
+import com.github.mikephil.charting.formatter.ValueFormatter;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 评分分布饼图数据
+ *
+ * 由FoodStats中按半星统计的直方图生成，评分从高到低，只包含有记录的档位。
+ * build只计算各档位的评分、数量和颜色，不创建图表库的对象；
+ * createPieData在后台线程创建PieData，主线程只需设置到图表。
+ * 颜色需在主线程从资源中取好后传入
+ */
+public final class RatingDistribution {
+
+    // 与饼图切片一一对应，第i项的颜色为colors[i]
+    public final float[] ratings;
+    public final int[] counts;
+    public final int[] colors;
+    private final int valueLineColor;
+    private final int valueTextColor;
+
+    private RatingDistribution(float[] ratings, int[] counts, int[] colors, int valueLineColor, int valueTextColor) {
+        this.ratings = ratings;
+        this.counts = counts;
+        this.colors = colors;
+        this.valueLineColor = valueLineColor;
+        this.valueTextColor = valueTextColor;
+    }
+
+    public int size() {
+        return ratings.length;
+    }
+
+    /**
+     * 计算各档位的评分、数量和颜色，可在后台线程调用
+     *
+     * @param histogram 半星直方图，见FoodStats.ratingHistogram
+     * @param palette 切片颜色，档位多于颜色数时循环使用
+     * @param valueLineColor 数值引线颜色
+     * @param valueTextColor 数值文字颜色
+     * @return 评分分布
+     */
+    public static RatingDistribution build(int[] histogram, int[] palette, int valueLineColor, int valueTextColor) {
+        int size = 0;
+        for (int bucket = 1; bucket < histogram.length; bucket++) {
+            if (histogram[bucket] > 0) {
+                size++;
+            }
+        }
+
+        float[] ratings = new float[size];
+        int[] counts = new int[size];
+        int[] colors = new int[size];
+        int index = 0;
+        // 0档为未评分，不参与分布
+        for (int bucket = histogram.length - 1; bucket >= 1; bucket--) {
+            int count = histogram[bucket];
+            if (count == 0) {
+                continue;
+            }
+            float rating = FoodStats.ratingOf(bucket);
+            ratings[index] = rating;
+            counts[index] = count;
+            colors[index] = palette[index % palette.length];
+            index++;
+        }
+        return new RatingDistribution(ratings, counts, colors, valueLineColor, valueTextColor);
+    }
+
+    /**
+     * 创建饼图数据，可在后台线程调用
+     * 返回的PieData不引用任何视图，可以随图表数据一起缓存；数值按百分比显示，图表需开启setUsePercentValues
+     *
+     * @return 饼图数据
+     */
+    public PieData createPieData() {
+        List<PieEntry> entries = new ArrayList<>(ratings.length);
+        for (int i = 0; i < ratings.length; i++) {
+            entries.add(new PieEntry(counts[i], ratings[i] + "星"));
+        }
+        PieDataSet dataSet = new PieDataSet(entries, "评分分布");
+        dataSet.setColors(colors);
+
+        // 调整切片之间的间距
+        dataSet.setSliceSpace(3f);
+        dataSet.setSelectionShift(6f);
+
+        // 设置值的格式和位置
+        dataSet.setYValuePosition(PieDataSet.ValuePosition.OUTSIDE_SLICE);
+        dataSet.setValueLinePart1Length(0.4f);
+        dataSet.setValueLinePart2Length(0.4f);
+        dataSet.setValueLineColor(valueLineColor);
+
+        PieData pieData = new PieData(dataSet);
+        pieData.setValueTextSize(12f);
+        pieData.setValueTextColor(valueTextColor);
+        pieData.setValueFormatter(new PercentValueFormatter());
+        return pieData;
+    }
+
+    /**
+     * 与PercentFormatter相同的百分比格式，但不持有图表
+     */
+    private static class PercentValueFormatter extends ValueFormatter {
+        private final DecimalFormat format = new DecimalFormat("###,###,##0.0");
+
+        @Override
+        public String getFormattedValue(float value) {
+            return format.format(value) + " %";
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.tastylog.viewmodel;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.tastylog.data.FoodPager;
+import com.example.tastylog.data.FoodRepository;
+import com.example.tastylog.data.MonthlySummary;
+import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.utils.FoodValueUtils;
+
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * 各个Tab共用的食物列表数据
+ *
+ * 以Activity为作用域，屏幕旋转和切换Tab时保留。
+ * 每次load都交给FoodRepository，是否访问云端由仓库的缓存有效期和同步合并决定；
+ * 之后的变化由仓库的观察者推送，页面只需观察这里的LiveData，不再各自请求数据。
+ * 内存中不常驻完整列表：首页只保留分页窗口，统计页按数据版本扫描仓库的列式快照，
+ * 完整列表只在有页面观察getFoodItems时读取
+ */
+public class FoodListViewModel extends AndroidViewModel {
+
+    private static final String TAG = "FoodListViewModel";
+
+    private final FoodRepository repository;
+    // 已加载的数据版本号，没有加载过时为null
+    private final MutableLiveData<Long> dataVersion = new MutableLiveData<>();
+    // 有页面观察时才从本地数据库读取，没有观察者时释放
+    private final MutableLiveData<List<FoodItem>> foodItems = new MutableLiveData<List<FoodItem>>() {
+        @Override
+        protected void onActive() {
+            loadFoodItems();
+        }
+
+        @Override
+        protected void onInactive() {
+            setValue(null);
+        }
+    };
+    // 首页显示的分页窗口，只包含当前滚动位置附近的记录
+    private final MutableLiveData<List<FoodItem>> pagedFoodItems = new MutableLiveData<>();
+    private final MutableLiveData<MonthlySummary> monthlySummary = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> loading = new MutableLiveData<>(false);
+    // 最近一次加载失败的错误，页面显示后调用clearError
+    private final MutableLiveData<Exception> error = new MutableLiveData<>();
+    private final FoodPager pager;
+
+    // 仓库的数据变化时刷新各个LiveData，包括本地增删改、同步结果和回滚
+    private final FoodRepository.FoodListObserver foodListObserver = this::onFoodListChanged;
+
+    public FoodListViewModel(@NonNull Application application) {
+        this(application, FoodRepository.getInstance(application));
+    }
+
+    /**
+     * 使用指定的仓库创建，测试时可传入使用内存数据库的仓库
+     */
+    @VisibleForTesting
+    FoodListViewModel(@NonNull Application application, @NonNull FoodRepository repository) {
+        super(application);
+        this.repository = repository;
+        pager = new FoodPager(repository, pagedFoodItems::setValue);
+        repository.addObserver(foodListObserver);
+        loadMonthlySummary();
+    }
+
+    /**
+     * 已加载的数据版本号，数据每变化一次更新一次
+     * 统计页观察它并用FoodRepository.filterFoodItems重新扫描，不需要完整列表
+     */
+    public LiveData<Long> getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * 完整的食物列表，按时间倒序，不可修改
+     * 只给需要全部记录的页面（如地图）使用，开始观察时从本地数据库读取，没有观察者时释放；
+     * 首页列表使用getPagedFoodItems，统计页使用getDataVersion
+     */
+    public LiveData<List<FoodItem>> getFoodItems() {
+        return foodItems;
+    }
+
+    /**
+     * 从本地数据库分页读取的列表窗口，按时间倒序，不可修改
+     * 记录很多时首页用它代替完整列表，内存中的记录数不超过几页
+     */
+    public LiveData<List<FoodItem>> getPagedFoodItems() {
+        return pagedFoodItems;
+    }
+
+    /**
+     * 滚动到窗口末尾附近时读取更早的一页
+     */
+    public void loadOlder() {
+        pager.loadOlder();
+    }
+
+    /**
+     * 滚动到窗口开头附近时读取更新的一页
+     */
+    public void loadNewer() {
+        pager.loadNewer();
+    }
+
+    /**
+     * 本月的消费汇总
+     */
+    public LiveData<MonthlySummary> getMonthlySummary() {
+        return monthlySummary;
+    }
+
+    public LiveData<Boolean> getLoading() {
+        return loading;
+    }
+
+    public LiveData<Exception> getError() {
+        return error;
+    }
+
+    public void clearError() {
+        error.setValue(null);
+    }
+
+    /**
+     * 加载食物列表，页面每次显示时调用
+     * 缓存仍在有效期内时仓库不访问云端，已有同步在进行时合并到那次同步，之后的变化由仓库推送
+     */
+    public void load() {
+        // 已有缓存时直接显示缓存，不再显示加载动画
+        if (!repository.hasCachedFoodItems()) {
+            loading.setValue(true);
+        }
+
+        repository.syncFoodItems(new FoodRepository.SyncCallback() {
+            @Override
+            public void onPageLoaded() {
+                // 这一页已写入本地数据库，首页窗口立即重新读取，其他页面等同步结束后再刷新
+                loading.setValue(false);
+                pager.refresh();
+            }
+
+            @Override
+            public void onLoaded() {
+                onFoodListChanged();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "加载数据失败", e);
+                loading.setValue(false);
+                error.setValue(e);
+            }
+        });
+    }
+
+    private void onFoodListChanged() {
+        loading.setValue(false);
+        long version = repository.getDataVersion();
+        // 观察者通知和加载回调常常对应同一个数据版本，只刷新一次
+        Long current = dataVersion.getValue();
+        if (current != null && current == version) {
+            return;
+        }
+        dataVersion.setValue(version);
+        // 本地数据库已在同一线程写入，按当前窗口重新读取
+        pager.refresh();
+        loadMonthlySummary();
+        if (foodItems.hasActiveObservers()) {
+            loadFoodItems();
+        }
+    }
+
+    private void loadFoodItems() {
+        repository.loadAllFoodItems(new FoodRepository.FoodListCallback() {
+            @Override
+            public void onFoodListLoaded(List<FoodItem> items) {
+                // 读取期间观察者已离开时不再持有列表
+                if (foodItems.hasActiveObservers()) {
+                    foodItems.setValue(items);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "读取完整列表失败", e);
+                error.setValue(e);
+            }
+        });
+    }
+
+    private void loadMonthlySummary() {
+        int currentYearMonth = FoodValueUtils.toYearMonth(Calendar.getInstance());
+        repository.getMonthlySummary(currentYearMonth, monthlySummary::setValue);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        repository.removeObserver(foodListObserver);
+    }
+}
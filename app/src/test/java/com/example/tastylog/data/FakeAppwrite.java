@@ -0,0 +1,84 @@
+package com.example.tastylog.data;
+
+import com.example.tastylog.AppwriteWrapper;
+import com.example.tastylog.model.FoodItem;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import io.appwrite.models.Document;
+
+/**
+ * 云端替身：同步时一次返回remotePage的副本，上传时只记录文档ID，不回调结果
+ */
+public class FakeAppwrite extends AppwriteWrapper {
+    public String userId;
+    public List<FoodItem> remotePage = new ArrayList<>();
+    // 发起的同步次数
+    public int fetchCount;
+    public final Set<String> created = new HashSet<>();
+    public final Set<String> updated = new HashSet<>();
+
+    public FakeAppwrite(String userId) {
+        this.userId = userId;
+    }
+
+    @Override
+    public String getCurrentUserId() {
+        return userId;
+    }
+
+    @Override
+    public void getUserFoodItems(String userId, String updatedAfter,
+                                 BiConsumer<FoodDocumentDecoder.Page, Boolean> onPage,
+                                 Consumer<Exception> onError) {
+        fetchCount++;
+        List<FoodItem> items = new ArrayList<>();
+        for (FoodItem item : remotePage) {
+            items.add(copy(item));
+        }
+        String last = items.isEmpty() ? null : items.get(items.size() - 1).getDocumentId();
+        onPage.accept(new FoodDocumentDecoder.Page(items, last, "2024-02-01T00:00:00.000+00:00"), true);
+    }
+
+    @Override
+    public void getUserFoodItemIds(String userId, Consumer<Set<String>> onSuccess, Consumer<Exception> onError) {
+        Set<String> ids = new HashSet<>();
+        for (FoodItem item : remotePage) {
+            ids.add(item.getDocumentId());
+        }
+        onSuccess.accept(ids);
+    }
+
+    @Override
+    public void addFoodItem(String userId, String documentId, String foodId, String title, String time,
+                            String imgUrl, float rating, double price, String tag, String content,
+                            String location, Consumer<Document<Map<String, Object>>> onSuccess,
+                            Consumer<Exception> onError) {
+        created.add(documentId);
+    }
+
+    @Override
+    public void updateFoodItem(String userId, String documentId, String title, String time, String imageUrl,
+                               float rating, double price, String tags, String notes, String location,
+                               Consumer<Document> onSuccess, Consumer<Exception> onError) {
+        updated.add(documentId);
+    }
+
+    private static FoodItem copy(FoodItem item) {
+        FoodItem copy = new FoodItem();
+        copy.setDocumentId(item.getDocumentId());
+        copy.setId(item.getId());
+        copy.setTitle(item.getTitle());
+        copy.setTime(item.getTime());
+        copy.setPrice(item.getPrice());
+        copy.setRating(item.getRating());
+        copy.setTags(new ArrayList<>(item.getTags()));
+        return copy;
+    }
+}
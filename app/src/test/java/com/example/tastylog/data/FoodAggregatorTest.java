@@ -0,0 +1,74 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.utils.FoodValueUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+public class FoodAggregatorTest {
+
+    @Test
+    public void aggregate_countsTotalDaysAndRatings() {
+        FoodTable table = FoodTable.build(Arrays.asList(
+                FoodTableTest.item("2024-01-05 12:00", "35", 4.5f, "Shanghai", "火锅"),
+                FoodTableTest.item("2024-01-05 19:00", "20", 4.5f, "Beijing", "火锅", "烧烤"),
+                FoodTableTest.item("2024-01-03 12:00", "10.5", 0f, "Shanghai"),
+                FoodTableTest.item("bad time", "5", 3f, null)));
+
+        FoodStats stats = FoodAggregator.aggregate(table, new int[]{0, 1, 2, 3});
+
+        assertEquals(4, stats.recordCount);
+        assertEquals(7050, stats.totalCents);
+        assertArrayEquals(new int[]{FoodValueUtils.toEpochDay(2024, 1, 3), FoodValueUtils.toEpochDay(2024, 1, 5)},
+                stats.days);
+        assertArrayEquals(new long[]{1050, 5500}, stats.dayCents);
+        int[] histogram = new int[FoodStats.RATING_BUCKETS];
+        histogram[9] = 2;
+        histogram[6] = 1;
+        assertArrayEquals(histogram, stats.ratingHistogram);
+    }
+
+    @Test
+    public void aggregate_parallelResultMatchesSequentialSums() {
+        // 超过一段的行数，走ForkJoinPool
+        List<FoodItem> items = FoodTableTest.randomItems(50_000, 7);
+        FoodTable table = FoodTable.build(items);
+        int[] rows = new int[items.size() / 2];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i * 2;
+        }
+
+        FoodStats stats = FoodAggregator.aggregate(table, rows);
+
+        long total = 0;
+        int[] histogram = new int[FoodStats.RATING_BUCKETS];
+        TreeMap<Integer, Long> dayCents = new TreeMap<>();
+        for (int row : rows) {
+            FoodItem item = table.getItem(row);
+            total += item.getPriceCents();
+            if (item.getRating() > 0) {
+                histogram[Math.round(item.getRating() * 2)]++;
+            }
+            Long day = dayCents.get(item.getEpochDay());
+            dayCents.put(item.getEpochDay(), (day != null ? day : 0) + item.getPriceCents());
+        }
+
+        assertEquals(rows.length, stats.recordCount);
+        assertEquals(total, stats.totalCents);
+        assertArrayEquals(histogram, stats.ratingHistogram);
+        assertEquals(dayCents.size(), stats.days.length);
+        int i = 0;
+        for (Integer day : dayCents.keySet()) {
+            assertEquals(day.intValue(), stats.days[i]);
+            assertEquals(dayCents.get(day).longValue(), stats.dayCents[i]);
+            i++;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * FoodDbHelper从版本1升级的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FoodDbHelperTest {
+
+    @Test
+    public void upgradeFromVersion1_createsCurrentSchema() {
+        Context context = ApplicationProvider.getApplicationContext();
+        String name = "upgrade_test.db";
+        File file = context.getDatabasePath(name);
+        file.getParentFile().mkdirs();
+        // 版本1只有食物记录表
+        SQLiteDatabase old = SQLiteDatabase.openOrCreateDatabase(file, null);
+        old.execSQL("CREATE TABLE " + FoodDbHelper.TABLE_FOOD + " ("
+                + FoodDbHelper.COL_DOCUMENT_ID + " TEXT PRIMARY KEY, "
+                + FoodDbHelper.COL_USER_ID + " TEXT NOT NULL)");
+        old.setVersion(1);
+        old.close();
+
+        FoodDbHelper helper = new FoodDbHelper(context, name);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        try {
+            assertEquals(2, db.getVersion());
+            assertTrue(columnsOf(db, FoodDbHelper.TABLE_FOOD).contains(FoodDbHelper.COL_LOCATION));
+            assertTrue(columnsOf(db, FoodDbHelper.TABLE_SYNC_STATE).contains(FoodDbHelper.COL_WATERMARK));
+            Set<String> outbox = columnsOf(db, FoodDbHelper.TABLE_OUTBOX);
+            assertTrue(outbox.contains(FoodDbHelper.COL_BASE));
+            assertTrue(outbox.contains(FoodDbHelper.COL_SENT));
+            assertTrue(columnsOf(db, FoodDbHelper.TABLE_MONTHLY_SUMMARY).contains(FoodDbHelper.COL_RATING_COUNT));
+        } finally {
+            helper.close();
+        }
+    }
+
+    private static Set<String> columnsOf(SQLiteDatabase db, String table) {
+        Set<String> columns = new HashSet<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null)) {
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(cursor.getColumnIndexOrThrow("name")));
+            }
+        }
+        return columns;
+    }
+}
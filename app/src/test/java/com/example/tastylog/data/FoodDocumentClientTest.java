@@ -0,0 +1,137 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.tastylog.model.FoodItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.appwrite.exceptions.AppwriteException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * 用模拟服务器返回listDocuments响应体，测试请求和FoodDocumentDecoder的解析
+ * JsonReader是Android的类，需要Robolectric
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FoodDocumentClientTest {
+
+    // 与Appwrite listDocuments的响应格式相同，字段顺序和系统字段保留原样
+    private static final String PAGE = "{\"total\":3,\"documents\":["
+            + "{\"user_id\":\"u1\",\"food_id\":\"f1\",\"title\":\"火锅\",\"time\":\"2024-01-05 12:00\","
+            + "\"rating\":4.5,\"price\":35.5,\"tag\":\"火锅, 川菜\",\"img_url\":\"https://img/1.jpg\","
+            + "\"content\":\"好吃\",\"location\":\"上海\",\"$id\":\"doc1\","
+            + "\"$createdAt\":\"2024-01-05T04:00:00.000+00:00\",\"$updatedAt\":\"2024-01-06T08:00:00.000+00:00\","
+            + "\"$permissions\":[\"read(\\\"user:u1\\\")\"],\"$databaseId\":\"db\",\"$collectionId\":\"food\"},"
+            + "{\"user_id\":\"u1\",\"food_id\":null,\"title\":\"面\",\"time\":null,\"rating\":null,"
+            + "\"price\":\"12\",\"tag\":null,\"img_url\":null,\"content\":null,\"location\":null,\"$id\":\"doc2\","
+            + "\"$createdAt\":\"2024-01-07T04:00:00.000+00:00\",\"$updatedAt\":\"2024-01-07T04:00:00.000+00:00\","
+            + "\"$permissions\":[],\"$databaseId\":\"db\",\"$collectionId\":\"food\"},"
+            + "{\"user_id\":\"u1\",\"food_id\":\"f3\",\"title\":\"烧烤\",\"time\":\"2024-01-02 19:00\","
+            + "\"rating\":\"3\",\"price\":\"¥8.8\",\"tag\":\"烧烤\",\"$id\":\"doc3\","
+            + "\"$updatedAt\":\"2024-01-03T10:00:00.000+00:00\",\"$databaseId\":\"db\",\"$collectionId\":\"food\"}"
+            + "]}";
+
+    private MockWebServer server;
+    private FoodDocumentClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new FoodDocumentClient(server.url("/v1").toString(), "project");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void listDocuments_sendsQueriesAndDecodesPage() throws Exception {
+        server.enqueue(new MockResponse().setBody(PAGE));
+
+        List<String> queries = Arrays.asList("{\"method\":\"equal\",\"attribute\":\"user_id\",\"values\":[\"u1\"]}",
+                "{\"method\":\"limit\",\"values\":[100]}");
+        FoodDocumentDecoder.Page page = client.listDocuments("db", "food", queries, "jwt");
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("project", request.getHeader("X-Appwrite-Project"));
+        assertEquals("jwt", request.getHeader("X-Appwrite-JWT"));
+        String path = URLDecoder.decode(request.getPath(), "UTF-8");
+        assertEquals("/v1/databases/db/collections/food/documents?queries[]=" + queries.get(0)
+                + "&queries[]=" + queries.get(1), path);
+
+        assertEquals(3, page.items.size());
+        // 游标为本页最后一条文档，水位线为本页最大的$updatedAt，与文档顺序无关
+        assertEquals("doc3", page.lastDocumentId);
+        assertEquals("2024-01-07T04:00:00.000+00:00", page.maxUpdatedAt);
+
+        FoodItem first = page.items.get(0);
+        assertEquals("doc1", first.getDocumentId());
+        assertEquals("f1", first.getId());
+        assertEquals("火锅", first.getTitle());
+        assertEquals("2024-01-05 12:00", first.getTime());
+        assertEquals(4.5f, first.getRating(), 0f);
+        assertEquals(3550, first.getPriceCents());
+        assertEquals(Arrays.asList("火锅", "川菜"), first.getTags());
+        assertEquals("https://img/1.jpg", first.getImageUrl());
+        assertEquals("好吃", first.getContent());
+        assertEquals("上海", first.getLocation());
+
+        // null字段保持默认值，food_id为null时使用文档ID，字符串价格补上¥
+        FoodItem second = page.items.get(1);
+        assertEquals("doc2", second.getId());
+        assertNull(second.getTime());
+        assertEquals(0f, second.getRating(), 0f);
+        assertEquals("¥12", second.getPrice());
+        assertEquals(1200, second.getPriceCents());
+        assertTrue(second.getTags().isEmpty());
+        assertNull(second.getLocation());
+
+        FoodItem third = page.items.get(2);
+        assertEquals(3f, third.getRating(), 0f);
+        assertEquals("¥8.8", third.getPrice());
+        assertEquals(880, third.getPriceCents());
+        assertEquals(Collections.singletonList("烧烤"), third.getTags());
+    }
+
+    @Test
+    public void listDocuments_decodesEmptyPage() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"total\":0,\"documents\":[]}"));
+
+        FoodDocumentDecoder.Page page = client.listDocuments("db", "food", Collections.emptyList(), "jwt");
+
+        assertTrue(page.items.isEmpty());
+        assertNull(page.lastDocumentId);
+        assertNull(page.maxUpdatedAt);
+    }
+
+    @Test
+    public void listDocuments_throwsAppwriteExceptionWithStatusCode() throws Exception {
+        String body = "{\"message\":\"Invalid token\",\"code\":401,\"type\":\"user_jwt_invalid\"}";
+        server.enqueue(new MockResponse().setResponseCode(401).setBody(body));
+
+        try {
+            client.listDocuments("db", "food", Collections.emptyList(), "expired");
+            fail();
+        } catch (AppwriteException e) {
+            assertEquals(Integer.valueOf(401), e.getCode());
+            assertEquals(body, e.getResponse());
+        }
+    }
+}
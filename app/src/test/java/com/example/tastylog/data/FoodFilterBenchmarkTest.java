@@ -0,0 +1,54 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertTrue;
+
+import com.example.tastylog.utils.FoodValueUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * 筛选吞吐量基准
+ *
+ * 20万行、五个条件全部启用时，预热后的中位吞吐量不低于每秒500万行，
+ * 即一次筛选不超过40ms。开发机上实测为每秒数千万行，目标为CI机器留出余量
+ */
+public class FoodFilterBenchmarkTest {
+
+    private static final int ROWS = 200_000;
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 15;
+    private static final double TARGET_ROWS_PER_SECOND = 5_000_000;
+
+    @Test
+    public void apply_meetsThroughputTarget() {
+        FoodTable table = FoodTable.build(FoodTableTest.randomItems(ROWS, 42));
+        int today = FoodValueUtils.toEpochDay(2024, 1, 1);
+        FoodFilter filter = new FoodFilter.Builder()
+                .dateRange(today - 365, today)
+                .priceRange(2000, 30000)
+                .ratingRange(2, 5)
+                .location("shanghai")
+                .tag("火锅")
+                .build();
+
+        int matched = 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            matched += filter.apply(table).length;
+        }
+        long[] nanos = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            // 每次都重新编译，与页面上每次筛选的开销一致
+            matched += filter.apply(table).length;
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double rowsPerSecond = ROWS / (nanos[MEASURED_RUNS / 2] / 1e9);
+
+        System.out.printf("FoodFilter: %,.0f rows/s (median of %d runs, %d matches)%n",
+                rowsPerSecond, MEASURED_RUNS, matched);
+        assertTrue("吞吐量" + (long) rowsPerSecond + "行/秒低于目标", rowsPerSecond >= TARGET_ROWS_PER_SECOND);
+    }
+}
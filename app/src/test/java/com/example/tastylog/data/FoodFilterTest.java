@@ -0,0 +1,88 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tastylog.utils.FoodValueUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class FoodFilterTest {
+
+    private static final int JAN_1 = FoodValueUtils.toEpochDay(2024, 1, 1);
+    private static final int JAN_31 = FoodValueUtils.toEpochDay(2024, 1, 31);
+
+    private final FoodTable table = FoodTable.build(Arrays.asList(
+            FoodTableTest.item("2024-01-05 12:00", "35", 4.5f, "Shanghai Xuhui", "火锅"),
+            FoodTableTest.item("2024-01-20 18:00", "120", 3f, "Beijing", "烧烤", "火锅"),
+            FoodTableTest.item("2024-02-02 12:00", "18.5", 5f, "shanghai Pudong", "面食"),
+            FoodTableTest.item("2023-12-31 20:00", "60", 2f, null),
+            FoodTableTest.item("bad time", "10", 0f, "Shanghai")));
+
+    @Test
+    public void apply_withoutConditionsReturnsEveryRow() {
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, FoodFilter.ALL.apply(table));
+    }
+
+    @Test
+    public void apply_dateRangeIsInclusiveAndSkipsUnparsedTimes() {
+        FoodFilter filter = new FoodFilter.Builder().dateRange(JAN_1, JAN_31).build();
+        assertArrayEquals(new int[]{0, 1}, filter.apply(table));
+    }
+
+    @Test
+    public void apply_priceRangeComparesCents() {
+        FoodFilter filter = new FoodFilter.Builder().priceRange(1850, 6000).build();
+        assertArrayEquals(new int[]{0, 2, 3}, filter.apply(table));
+    }
+
+    @Test
+    public void apply_ratingRangeUsesWholeStars() {
+        FoodFilter filter = new FoodFilter.Builder().ratingRange(4, 5).build();
+        assertArrayEquals(new int[]{0, 2}, filter.apply(table));
+    }
+
+    @Test
+    public void apply_locationIsCaseInsensitiveAndKeepsRecordsWithoutLocation() {
+        FoodFilter filter = new FoodFilter.Builder().location("SHANGHAI").build();
+        assertArrayEquals(new int[]{0, 2, 3, 4}, filter.apply(table));
+    }
+
+    @Test
+    public void apply_tagMatchesAnyOfTheRecordTags() {
+        assertArrayEquals(new int[]{0, 1}, new FoodFilter.Builder().tag("火锅").build().apply(table));
+        assertEquals(0, new FoodFilter.Builder().tag("甜品").build().apply(table).length);
+    }
+
+    @Test
+    public void apply_combinesConditions() {
+        FoodFilter filter = new FoodFilter.Builder()
+                .dateRange(JAN_1, JAN_31)
+                .priceRange(0, 10000)
+                .tag("火锅")
+                .build();
+        assertArrayEquals(new int[]{0}, filter.apply(table));
+    }
+
+    @Test
+    public void emptyLocationAndTagAreInactive() {
+        FoodFilter filter = new FoodFilter.Builder().dateRange(JAN_1, JAN_31).location("").tag("").build();
+        assertTrue(filter.isDateOnly());
+        assertEquals(new FoodFilter.Builder().dateRange(JAN_1, JAN_31).build(), filter);
+        assertFalse(new FoodFilter.Builder().priceRange(0, 100).build().isDateOnly());
+    }
+
+    @Test
+    public void equalsComparesOnlyActiveConditions() {
+        FoodFilter a = new FoodFilter.Builder().dateRange(JAN_1, JAN_31).location("Shanghai").build();
+        FoodFilter b = new FoodFilter.Builder().dateRange(JAN_1, JAN_31).location("shanghai").build();
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, new FoodFilter.Builder().dateRange(JAN_1, JAN_31 - 1).location("Shanghai").build());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tastylog.model.FoodItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FoodPagerTest {
+
+    private static final int ROWS = 1000;
+
+    private final List<FoodItem> window = new ArrayList<>();
+    private FoodTablePageSource source = new FoodTablePageSource(FoodTable.build(items(ROWS)), allRows(ROWS));
+    // 通过字段转发，测试中可以替换数据源
+    private final FoodPager pager = new FoodPager(
+            (anchor, older, inclusive, limit, callback) -> source.loadPage(anchor, older, inclusive, limit, callback),
+            items -> {
+                window.clear();
+                window.addAll(items);
+            });
+
+    @Test
+    public void scrollingKeepsWindowBoundedAndContiguous() {
+        pager.refresh();
+        assertEquals(FoodPager.PAGE_SIZE, window.size());
+        assertFalse(pager.hasNewer());
+
+        for (int i = 0; i < ROWS / FoodPager.PAGE_SIZE; i++) {
+            pager.loadOlder();
+            assertTrue(window.size() <= FoodPager.MAX_PAGES * FoodPager.PAGE_SIZE);
+            assertContiguous();
+        }
+        assertFalse(pager.hasOlder());
+        assertTrue(pager.hasNewer());
+        assertEquals(ROWS - 1, indexOf(window.get(window.size() - 1)));
+
+        while (pager.hasNewer()) {
+            pager.loadNewer();
+            assertTrue(window.size() <= FoodPager.MAX_PAGES * FoodPager.PAGE_SIZE);
+            assertContiguous();
+        }
+        assertEquals(0, indexOf(window.get(0)));
+    }
+
+    @Test
+    public void refreshKeepsCurrentWindowWhenDataChanges() {
+        pager.refresh();
+        for (int i = 0; i < FoodPager.MAX_PAGES + 2; i++) {
+            pager.loadOlder();
+        }
+        FoodItem first = window.get(0);
+        int size = window.size();
+
+        // 数据更新后快照中是内容相同的新对象
+        source = new FoodTablePageSource(FoodTable.build(items(ROWS)), allRows(ROWS));
+        pager.refresh();
+
+        assertEquals(first.getDocumentId(), window.get(0).getDocumentId());
+        assertEquals(size, window.size());
+        assertTrue(pager.hasNewer());
+    }
+
+    private void assertContiguous() {
+        int first = indexOf(window.get(0));
+        for (int i = 1; i < window.size(); i++) {
+            assertEquals(first + i, indexOf(window.get(i)));
+        }
+    }
+
+    private static int indexOf(FoodItem item) {
+        return ROWS - 1 - Integer.parseInt(item.getDocumentId());
+    }
+
+    /**
+     * 每天两条记录，文档ID越大时间越新
+     */
+    private static List<FoodItem> items(int count) {
+        List<FoodItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int day = i / 2;
+            String time = String.format("%04d-%02d-%02d %02d:00",
+                    2020 + day / 336, 1 + day / 28 % 12, 1 + day % 28, 10 + i % 2);
+            FoodItem item = FoodTableTest.item(time, "1", 0f, null);
+            item.setDocumentId(String.format("%04d", i));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static int[] allRows(int count) {
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tastylog.model.FoodItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * FoodRepository在内存数据库上的测试
+ * 后台任务放进队列，由测试逐个执行，可以构造同步结果和本地修改交错的顺序
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FoodRepositoryTest {
+    private static final String USER = "user";
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor executor = tasks::add;
+    private final FakeAppwrite appwrite = new FakeAppwrite(USER);
+    private LocalFoodStore store;
+    private FoodRepository repository;
+
+    @Before
+    public void setUp() {
+        store = new LocalFoodStore(ApplicationProvider.getApplicationContext(), null);
+        repository = new FoodRepository(store, appwrite, executor);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void addFoodItem_survivesSyncPublishQueuedBeforeTheWrite() {
+        store.upsertAll(USER, Collections.singletonList(item("a", "2024-01-05 12:00", "35")));
+        appwrite.remotePage = Collections.singletonList(item("a", "2024-01-05 12:00", "35"));
+        int[] loaded = {0};
+        repository.syncFoodItems(new FoodRepository.SyncCallback() {
+            @Override
+            public void onLoaded() {
+                loaded[0]++;
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        // 读取本地数据并发起同步，云端的一页到达后写入和发布排进队列，此时还没执行
+        tasks.poll().run();
+        idleMainLooper();
+        assertEquals(1, loaded[0]);
+        assertEquals(1, tasks.size());
+
+        repository.addFoodItem(item("b", "2024-01-20 12:00", "20"), new FoodRepository.FoodItemCallback() {
+            @Override
+            public void onSuccess(FoodItem foodItem) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        runAll();
+
+        FoodTable table = repository.getFoodTable();
+        assertEquals(2, table.size);
+        assertEquals("b", table.getItem(0).getDocumentId());
+        MonthlySummary[] summary = new MonthlySummary[1];
+        repository.getMonthlySummary(202401, result -> summary[0] = result);
+        assertEquals(2, summary[0].recordCount);
+        assertEquals(5500, summary[0].spendingCents);
+        assertTrue(appwrite.created.contains("b"));
+    }
+
+    @Test
+    public void updateFoodItem_keepsOrderAndContentHashInStepWithTheStore() {
+        store.upsertAll(USER, Arrays.asList(item("a", "2024-01-05 12:00", "35"), item("c", "2024-01-10 12:00", "8")));
+        appwrite.remotePage = store.getFoodItems(USER);
+        repository.syncFoodItems(failOnError());
+        runAll();
+
+        // 改到最新的时间，应排到最前面
+        repository.updateFoodItem(item("a", "2024-01-15 12:00", "35"), new FoodRepository.FoodItemCallback() {
+            @Override
+            public void onSuccess(FoodItem foodItem) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        runAll();
+        FoodTable table = repository.getFoodTable();
+        assertEquals("a", table.getItem(0).getDocumentId());
+        assertEquals("c", table.getItem(1).getDocumentId());
+
+        // 云端返回相同的数据，增量更新的哈希与重新计算的一致，版本号不变
+        long version = repository.getDataVersion();
+        appwrite.remotePage = store.getFoodItems(USER);
+        repository.setCacheTtl(0);
+        repository.syncFoodItems(failOnError());
+        runAll();
+        assertEquals(version, repository.getDataVersion());
+        assertTrue(appwrite.updated.contains("a"));
+    }
+
+    @Test
+    public void syncFoodItems_clearsCacheAfterLogout() {
+        store.upsertAll(USER, Collections.singletonList(item("a", "2024-01-05 12:00", "35")));
+        appwrite.remotePage = store.getFoodItems(USER);
+        repository.syncFoodItems(failOnError());
+        runAll();
+        assertTrue(repository.hasCachedFoodItems());
+        assertEquals(1, repository.getFoodTable().size);
+        int[] changes = {0};
+        repository.addObserver(() -> changes[0]++);
+
+        appwrite.userId = "";
+        long version = repository.getDataVersion();
+        repository.syncFoodItems(failOnError());
+        runAll();
+
+        assertEquals(1, changes[0]);
+        assertTrue(repository.getDataVersion() > version);
+        assertFalse(repository.hasCachedFoodItems());
+        assertEquals(0, repository.getFoodTable().size);
+        MonthlySummary[] summary = new MonthlySummary[1];
+        repository.getMonthlySummary(202401, result -> summary[0] = result);
+        assertEquals(0, summary[0].recordCount);
+    }
+
+    private static FoodRepository.SyncCallback failOnError() {
+        return new FoodRepository.SyncCallback() {
+            @Override
+            public void onLoaded() {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+
+    private void runAll() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+            idleMainLooper();
+        }
+    }
+
+    private static void idleMainLooper() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static FoodItem item(String documentId, String time, String price) {
+        FoodItem item = new FoodItem();
+        item.setDocumentId(documentId);
+        item.setId(documentId);
+        item.setTitle(documentId);
+        item.setTime(time);
+        item.setPrice(price);
+        item.setTags(new ArrayList<>());
+        return item;
+    }
+}
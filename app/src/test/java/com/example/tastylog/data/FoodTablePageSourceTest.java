@@ -0,0 +1,87 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.utils.FoodValueUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FoodTablePageSourceTest {
+
+    private static FoodItem item(String documentId, String time, String price) {
+        FoodItem item = FoodTableTest.item(time, price, 0f, null);
+        item.setDocumentId(documentId);
+        return item;
+    }
+
+    private final FoodTable table = FoodTable.build(Arrays.asList(
+            item("a", "2024-01-01 12:00", "10"),
+            item("b", "bad time", "1"),
+            item("c", "2024-01-02 09:00", "20"),
+            item("d", "2024-01-02 19:00", "30"),
+            item("e", "2024-01-01 12:00", "5"),
+            item("f", "2024-01-03 12:00", "40")));
+
+    @Test
+    public void loadPage_ordersByDayThenTimeWithUnknownDatesLast() {
+        FoodTablePageSource source = new FoodTablePageSource(table, new int[]{0, 1, 2, 3, 4, 5});
+
+        assertEquals(Arrays.asList("f", "d", "c", "e", "a", "b"), ids(load(source, null, true, false, 10)));
+        assertEquals(Arrays.asList("f", "d"), ids(load(source, null, true, false, 2)));
+    }
+
+    @Test
+    public void loadPage_readsAroundAnchor() {
+        FoodTablePageSource source = new FoodTablePageSource(table, new int[]{0, 1, 2, 3, 4, 5});
+        FoodItem c = table.getItem(2);
+
+        assertEquals(Arrays.asList("e", "a"), ids(load(source, c, true, false, 2)));
+        assertEquals(Arrays.asList("c", "e"), ids(load(source, c, true, true, 2)));
+        assertEquals(Arrays.asList("f", "d"), ids(load(source, c, false, false, 5)));
+        assertEquals(Arrays.asList("d", "c"), ids(load(source, c, false, true, 2)));
+        assertTrue(load(source, table.getItem(1), true, false, 5).isEmpty());
+    }
+
+    @Test
+    public void getDayCents_coversWholeDayRegardlessOfPaging() {
+        // 只显示部分行
+        FoodTablePageSource source = new FoodTablePageSource(table, new int[]{0, 1, 3, 4});
+
+        assertEquals(4, source.size());
+        assertEquals(1500, source.getDayCents(FoodValueUtils.toEpochDay(2024, 1, 1)));
+        assertEquals(3000, source.getDayCents(FoodValueUtils.toEpochDay(2024, 1, 2)));
+        assertEquals(100, source.getDayCents(FoodValueUtils.NO_DATE));
+        assertEquals(0, source.getDayCents(FoodValueUtils.toEpochDay(2024, 1, 3)));
+    }
+
+    static List<FoodItem> load(FoodTablePageSource source, FoodItem anchor, boolean older, boolean inclusive,
+                               int limit) {
+        List<FoodItem> result = new ArrayList<>();
+        source.loadPage(anchor, older, inclusive, limit, new FoodRepository.FoodListCallback() {
+            @Override
+            public void onFoodListLoaded(List<FoodItem> foodItems) {
+                result.addAll(foodItems);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        return result;
+    }
+
+    static List<String> ids(List<FoodItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (FoodItem item : items) {
+            ids.add(item.getDocumentId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.utils.FoodValueUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class FoodTableTest {
+
+    private static final int JAN_1 = FoodValueUtils.toEpochDay(2024, 1, 1);
+
+    @Test
+    public void build_storesColumnsAndDictionaries() {
+        FoodTable table = FoodTable.build(Arrays.asList(
+                item("2024-01-05 12:00", "35", 4.5f, "Shanghai", "火锅"),
+                item("2024-01-06 18:00", "12.5", 3f, "Beijing", "烧烤", "火锅"),
+                item("bad time", "8", 0f, null),
+                item("2024-01-07 12:00", "20", 5f, "Shanghai")));
+
+        assertEquals(4, table.size);
+        assertArrayEquals(new long[]{3500, 1250, 800, 2000}, table.priceCents);
+        assertEquals(FoodValueUtils.toEpochDay(2024, 1, 5), table.epochDays[0]);
+        assertEquals(FoodValueUtils.NO_DATE, table.epochDays[2]);
+        assertArrayEquals(new float[]{4.5f, 3f, 0f, 5f}, table.ratings, 0f);
+
+        // 相同位置共用一个ID，没有位置的记录为NO_LOCATION
+        assertEquals(2, table.getLocationCount());
+        assertEquals(table.locationIds[0], table.locationIds[3]);
+        assertEquals("Beijing", table.getLocation(table.locationIds[1]));
+        assertEquals(FoodTable.NO_LOCATION, table.locationIds[2]);
+        assertNull(table.getLocation(FoodTable.NO_LOCATION));
+
+        int hotpot = table.findTag("火锅");
+        int barbecue = table.findTag("烧烤");
+        assertEquals(2, table.getTagCount());
+        assertEquals(-1, table.findTag("甜品"));
+        assertTrue(table.hasTag(0, hotpot));
+        assertTrue(table.hasTag(1, hotpot));
+        assertTrue(table.hasTag(1, barbecue));
+        assertFalse(table.hasTag(0, barbecue));
+        assertFalse(table.hasTag(3, hotpot));
+    }
+
+    @Test
+    public void build_handlesMoreThan64Tags() {
+        List<FoodItem> items = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            items.add(item("2024-01-01 12:00", "1", 0f, null, "tag" + i));
+        }
+        FoodTable table = FoodTable.build(items);
+
+        assertEquals(3, table.tagWords);
+        for (int i = 0; i < 130; i++) {
+            int tagId = table.findTag("tag" + i);
+            assertTrue(table.hasTag(i, tagId));
+            assertFalse(table.hasTag(i, (tagId + 1) % 130));
+        }
+    }
+
+    /**
+     * 统计页按日期、价格、位置和评分筛选并汇总支出，10万行时应远低于一帧（16ms）。
+     * 预热后取中位数，目标为半帧
+     */
+    @Test
+    public void scan_100kRowsStaysWithinHalfAFrame() {
+        FoodTable table = FoodTable.build(randomItems(100_000, 12));
+        int startDay = JAN_1 - 365;
+        // 与统计页相同：位置先按字典判断一次，扫描时查表
+        boolean[] locationMatches = new boolean[table.getLocationCount()];
+        for (int id = 0; id < locationMatches.length; id++) {
+            locationMatches[id] = table.getLocation(id).toLowerCase().contains("shanghai");
+        }
+
+        long total = 0;
+        long[] nanos = new long[15];
+        for (int run = -10; run < nanos.length; run++) {
+            long start = System.nanoTime();
+            total += scan(table, startDay, JAN_1, 2000, 30000, locationMatches, 2, 5);
+            if (run >= 0) {
+                nanos[run] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        double medianMillis = nanos[nanos.length / 2] / 1e6;
+
+        System.out.printf("FoodTable scan: %.2fms per 100k rows (median, total %d)%n", medianMillis, total);
+        assertTrue("扫描耗时" + medianMillis + "ms超过8ms", medianMillis <= 8);
+    }
+
+    private static long scan(FoodTable table, int startDay, int endDay, long minPriceCents, long maxPriceCents,
+                             boolean[] locationMatches, int minRating, int maxRating) {
+        long cents = 0;
+        for (int i = 0; i < table.size; i++) {
+            int epochDay = table.epochDays[i];
+            if (epochDay == FoodValueUtils.NO_DATE || epochDay < startDay || epochDay > endDay) {
+                continue;
+            }
+            if (table.priceCents[i] < minPriceCents || table.priceCents[i] > maxPriceCents) {
+                continue;
+            }
+            int locationId = table.locationIds[i];
+            if (locationId != FoodTable.NO_LOCATION && !locationMatches[locationId]) {
+                continue;
+            }
+            int rating = (int) table.ratings[i];
+            if (rating < minRating || rating > maxRating) {
+                continue;
+            }
+            cents += table.priceCents[i];
+        }
+        return cents;
+    }
+
+    static FoodItem item(String time, String price, float rating, String location, String... tags) {
+        FoodItem item = new FoodItem();
+        item.setTime(time);
+        item.setPrice(price);
+        item.setRating(rating);
+        item.setLocation(location);
+        item.setTags(new ArrayList<>(Arrays.asList(tags)));
+        return item;
+    }
+
+    /**
+     * 2024-01-01之前约四年内的随机记录
+     */
+    static List<FoodItem> randomItems(int count, long seed) {
+        Random random = new Random(seed);
+        String[] locations = {"Shanghai Xuhui", "Shanghai Pudong", "Beijing", "Hangzhou", "Chengdu", null};
+        String[] tags = {"火锅", "烧烤", "面食", "甜品", "日料", "快餐"};
+        List<FoodItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int[] date = FoodValueUtils.fromEpochDay(JAN_1 - random.nextInt(1500));
+            String time = String.format("%04d-%02d-%02d 12:00", date[0], date[1], date[2]);
+            String price = random.nextInt(500) + "." + random.nextInt(10);
+            items.add(item(time, price, random.nextInt(11) / 2f, locations[random.nextInt(locations.length)],
+                    tags[random.nextInt(tags.length)], tags[random.nextInt(tags.length)]));
+        }
+        return items;
+    }
+}
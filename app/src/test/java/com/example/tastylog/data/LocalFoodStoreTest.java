@@ -0,0 +1,270 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tastylog.model.FoodItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * LocalFoodStore在内存数据库上的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LocalFoodStoreTest {
+    private static final String USER = "user";
+
+    private LocalFoodStore store;
+
+    @Before
+    public void setUp() {
+        store = new LocalFoodStore(ApplicationProvider.getApplicationContext(), null);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void upsertAll_skipsPendingDocuments() {
+        store.upsertAll(USER, Collections.singletonList(item("a", "2024-01-01 12:00", "A")));
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A local"), OutboxEntry.OP_UPDATE);
+
+        store.upsertAll(USER, Arrays.asList(item("a", "2024-01-01 12:00", "A remote"), item("b", "2024-01-02 12:00", "B")));
+
+        List<FoodItem> items = store.getFoodItems(USER);
+        assertEquals(2, items.size());
+        assertEquals("A local", find(items, "a").getTitle());
+        assertEquals("B", find(items, "b").getTitle());
+    }
+
+    @Test
+    public void deleteMissing_removesOnlySyncedRecordsAbsentRemotely() {
+        store.upsertAll(USER, Arrays.asList(item("a", "2024-01-01 12:00", "A"), item("b", "2024-01-02 12:00", "B")));
+        store.saveWithOutbox(USER, item("c", "2024-01-03 12:00", "C"), OutboxEntry.OP_CREATE);
+
+        int removed = store.deleteMissing(USER, new HashSet<>(Collections.singletonList("a")));
+
+        assertEquals(1, removed);
+        assertEquals(Arrays.asList("a", "c"), sortedIds(store.getFoodItems(USER)));
+    }
+
+    @Test
+    public void deleteMissing_removesEveryMissingRecordOfLargeTable() {
+        List<FoodItem> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            items.add(item("id" + i, "2024-01-01 12:00", "T" + i));
+        }
+        store.upsertAll(USER, items);
+
+        // 只保留偶数ID，游标需要跨越多个窗口
+        HashSet<String> remoteIds = new HashSet<>();
+        for (int i = 0; i < 2000; i += 2) {
+            remoteIds.add("id" + i);
+        }
+        int removed = store.deleteMissing(USER, remoteIds);
+
+        assertEquals(1000, removed);
+        assertEquals(remoteIds, new HashSet<>(sortedIds(store.getFoodItems(USER))));
+    }
+
+    @Test
+    public void getFoodItemsPage_walksBothDirectionsWithoutGapsOrDuplicates() {
+        List<FoodItem> items = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            // 每三条共用一个时间，另有两条没有时间，检验以文档ID作为次序的边界
+            String time = i < 21 ? String.format("2024-01-%02d 12:00", 1 + i / 3) : null;
+            items.add(item(String.format("d%02d", i), time, "T" + i));
+        }
+        store.upsertAll(USER, items);
+        // 按时间倒序，时间相同时按文档ID倒序，没有时间的排在最后
+        List<FoodItem> expected = new ArrayList<>(items.subList(0, 21));
+        Collections.reverse(expected);
+        expected.add(items.get(22));
+        expected.add(items.get(21));
+
+        List<FoodItem> walked = new ArrayList<>();
+        List<FoodItem> page = store.getFoodItemsPage(USER, null, true, false, 5);
+        while (!page.isEmpty()) {
+            walked.addAll(page);
+            page = store.getFoodItemsPage(USER, page.get(page.size() - 1), true, false, 5);
+        }
+        assertEquals(documentIds(expected), documentIds(walked));
+        // 时间为空的记录排在最后
+        assertNull(walked.get(walked.size() - 1).getTime());
+
+        List<FoodItem> newer = store.getFoodItemsPage(USER, walked.get(12), false, false, 5);
+        assertEquals(documentIds(walked.subList(7, 12)), documentIds(newer));
+        List<FoodItem> fromAnchor = store.getFoodItemsPage(USER, walked.get(12), true, true, 3);
+        assertEquals(documentIds(walked.subList(12, 15)), documentIds(fromAnchor));
+        List<FoodItem> newerThanUndated = store.getFoodItemsPage(USER, walked.get(22), false, false, 3);
+        assertEquals(documentIds(walked.subList(19, 22)), documentIds(newerThanUndated));
+    }
+
+    @Test
+    public void saveWithOutbox_coalescesEditsOfUnsentCreate() {
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A"), OutboxEntry.OP_CREATE);
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A2"), OutboxEntry.OP_UPDATE);
+
+        List<OutboxEntry> entries = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10);
+        assertEquals(1, entries.size());
+        OutboxEntry entry = entries.get(0);
+        assertEquals(OutboxEntry.OP_CREATE, entry.op);
+        assertEquals(2, entry.revision);
+        assertEquals("A2", entry.item.getTitle());
+        assertNull(entry.base);
+    }
+
+    @Test
+    public void deleteWithOutbox_dropsUnsentCreate() {
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A"), OutboxEntry.OP_CREATE);
+
+        store.deleteWithOutbox(USER, "a");
+
+        assertTrue(store.getFoodItems(USER).isEmpty());
+        assertTrue(store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).isEmpty());
+    }
+
+    @Test
+    public void deleteWithOutbox_queuesDeleteForCreateAlreadySent() {
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A"), OutboxEntry.OP_CREATE);
+        OutboxEntry create = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).get(0);
+        store.markOutboxEntrySent(create);
+
+        // 新建上传期间删除，随后新建上传成功
+        store.deleteWithOutbox(USER, "a");
+        store.completeOutboxEntry(create);
+
+        assertTrue(store.getFoodItems(USER).isEmpty());
+        List<OutboxEntry> entries = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10);
+        assertEquals(1, entries.size());
+        assertEquals(OutboxEntry.OP_DELETE, entries.get(0).op);
+    }
+
+    @Test
+    public void deleteWithOutbox_queuesDeleteWhenSentCreateFailed() {
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A"), OutboxEntry.OP_CREATE);
+        OutboxEntry create = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).get(0);
+        store.markOutboxEntrySent(create);
+        // 请求超时，云端可能已经创建
+        store.rescheduleOutboxEntry(create, 0);
+
+        store.deleteWithOutbox(USER, "a");
+
+        List<OutboxEntry> entries = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10);
+        assertEquals(1, entries.size());
+        assertEquals(OutboxEntry.OP_DELETE, entries.get(0).op);
+    }
+
+    @Test
+    public void completeOutboxEntry_removesEntryOfSameRevision() {
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A"), OutboxEntry.OP_CREATE);
+        OutboxEntry sent = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).get(0);
+
+        store.completeOutboxEntry(sent);
+
+        assertTrue(store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).isEmpty());
+    }
+
+    @Test
+    public void completeOutboxEntry_keepsEditMadeWhileUploading() {
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A"), OutboxEntry.OP_CREATE);
+        OutboxEntry sent = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).get(0);
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A2"), OutboxEntry.OP_UPDATE);
+
+        store.completeOutboxEntry(sent);
+
+        List<OutboxEntry> entries = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10);
+        assertEquals(1, entries.size());
+        // 新建已经完成，剩下的修改改为更新，被拒绝时回滚到刚上传的内容
+        assertEquals(OutboxEntry.OP_UPDATE, entries.get(0).op);
+        assertEquals("A2", entries.get(0).item.getTitle());
+        assertEquals("A", entries.get(0).base.getTitle());
+    }
+
+    @Test
+    public void rollbackOutboxEntry_restoresConfirmedVersion() {
+        store.upsertAll(USER, Collections.singletonList(item("a", "2024-01-01 12:00", "A")));
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A local"), OutboxEntry.OP_UPDATE);
+        OutboxEntry sent = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).get(0);
+
+        assertTrue(store.rollbackOutboxEntry(sent));
+
+        assertEquals("A", find(store.getFoodItems(USER), "a").getTitle());
+        assertTrue(store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).isEmpty());
+    }
+
+    @Test
+    public void rollbackOutboxEntry_removesRejectedCreate() {
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A"), OutboxEntry.OP_CREATE);
+        OutboxEntry sent = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).get(0);
+
+        assertTrue(store.rollbackOutboxEntry(sent));
+
+        assertTrue(store.getFoodItems(USER).isEmpty());
+    }
+
+    @Test
+    public void rollbackOutboxEntry_skipsWhenNewerEditPending() {
+        store.upsertAll(USER, Collections.singletonList(item("a", "2024-01-01 12:00", "A")));
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A1"), OutboxEntry.OP_UPDATE);
+        OutboxEntry sent = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).get(0);
+        store.saveWithOutbox(USER, item("a", "2024-01-01 12:00", "A2"), OutboxEntry.OP_UPDATE);
+
+        assertFalse(store.rollbackOutboxEntry(sent));
+
+        assertEquals("A2", find(store.getFoodItems(USER), "a").getTitle());
+        OutboxEntry pending = store.getDueOutboxEntries(USER, System.currentTimeMillis(), 10).get(0);
+        assertEquals(2, pending.revision);
+        assertNotNull(pending.base);
+        assertEquals("A", pending.base.getTitle());
+    }
+
+    private static FoodItem item(String documentId, String time, String title) {
+        FoodItem item = new FoodItem();
+        item.setDocumentId(documentId);
+        item.setTime(time);
+        item.setTitle(title);
+        item.setPrice("12.5");
+        return item;
+    }
+
+    private static FoodItem find(List<FoodItem> items, String documentId) {
+        for (FoodItem item : items) {
+            if (documentId.equals(item.getDocumentId())) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> documentIds(List<FoodItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (FoodItem item : items) {
+            ids.add(item.getDocumentId());
+        }
+        return ids;
+    }
+
+    private static List<String> sortedIds(List<FoodItem> items) {
+        List<String> ids = documentIds(items);
+        Collections.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.tastylog.model.FoodItem;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class MonthlyAggregatesTest {
+
+    @Test
+    public void rebuild_summarizesEachMonth() {
+        MonthlyAggregates aggregates = new MonthlyAggregates();
+        aggregates.rebuild(Arrays.asList(
+                FoodTableTest.item("2024-01-05 12:00", "35", 4f, null),
+                FoodTableTest.item("2024-01-20 12:00", "15.5", 0f, null),
+                FoodTableTest.item("2024-02-01 12:00", "20", 5f, null),
+                FoodTableTest.item("bad time", "99", 3f, null)));
+
+        MonthlySummary january = aggregates.get(202401);
+        assertEquals(2, january.recordCount);
+        assertEquals(5050, january.spendingCents);
+        // 未评分的记录不计入平均分
+        assertEquals(1, january.ratingCount);
+        assertEquals(4.0, january.getAverageRating(), 1e-9);
+        assertEquals(1, aggregates.get(202402).recordCount);
+        assertEquals(0, aggregates.get(202403).recordCount);
+    }
+
+    @Test
+    public void update_returnsOnlyChangedMonths() {
+        MonthlyAggregates aggregates = new MonthlyAggregates();
+        FoodItem item = FoodTableTest.item("2024-01-05 12:00", "35", 4f, null);
+        aggregates.rebuild(Arrays.asList(item, FoodTableTest.item("2024-01-06 12:00", "10", 2f, null)));
+
+        // 移到另一个月，两个月份都变化
+        FoodItem moved = FoodTableTest.item("2024-02-05 12:00", "40", 5f, null);
+        List<MonthlySummary> changed = aggregates.update(item, moved);
+        assertEquals(2, changed.size());
+        assertEquals(202401, changed.get(0).yearMonth);
+        assertEquals(1, changed.get(0).recordCount);
+        assertEquals(1000, changed.get(0).spendingCents);
+        assertEquals(202402, changed.get(1).yearMonth);
+        assertEquals(4000, changed.get(1).spendingCents);
+
+        // 同一个月内修改只返回一个月份
+        FoodItem edited = FoodTableTest.item("2024-02-06 12:00", "25", 3f, null);
+        changed = aggregates.update(moved, edited);
+        assertEquals(1, changed.size());
+        assertEquals(2500, changed.get(0).spendingCents);
+        assertEquals(3.0, changed.get(0).getAverageRating(), 1e-9);
+
+        changed = aggregates.update(edited, null);
+        assertEquals(0, changed.get(0).recordCount);
+        assertEquals(0, aggregates.get(202402).spendingCents);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.tastylog.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.tastylog.model.FoodItem;
+import com.example.tastylog.utils.FoodValueUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SpendingRollupTest {
+
+    private static int day(int year, int month, int dayOfMonth) {
+        return FoodValueUtils.toEpochDay(year, month, dayOfMonth);
+    }
+
+    private final List<FoodItem> items = Arrays.asList(
+            // 2024-01-01是周一
+            FoodTableTest.item("2024-01-01 12:00", "10", 0f, null),
+            FoodTableTest.item("2024-01-01 19:00", "5", 0f, null),
+            FoodTableTest.item("2024-01-07 12:00", "20", 0f, null),
+            FoodTableTest.item("2024-01-08 12:00", "40", 0f, null),
+            FoodTableTest.item("2024-02-15 12:00", "80", 0f, null),
+            FoodTableTest.item("bad time", "1000", 0f, null));
+
+    @Test
+    public void getTotalCents_sumsInclusiveRange() {
+        SpendingRollup rollup = new SpendingRollup();
+        rollup.rebuild(items);
+
+        assertEquals(15500, rollup.getTotalCents(day(2024, 1, 1), day(2024, 2, 29)));
+        assertEquals(7500, rollup.getTotalCents(day(2024, 1, 1), day(2024, 1, 8)));
+        assertEquals(6000, rollup.getTotalCents(day(2024, 1, 2), day(2024, 1, 8)));
+        assertEquals(0, rollup.getTotalCents(day(2023, 1, 1), day(2023, 12, 31)));
+    }
+
+    @Test
+    public void copy_isNotAffectedByLaterUpdates() {
+        SpendingRollup rollup = new SpendingRollup();
+        rollup.rebuild(items);
+        SpendingRollup copy = rollup.copy();
+
+        rollup.update(null, FoodTableTest.item("2024-01-01 20:00", "100", 0f, null));
+        rollup.update(items.get(4), null);
+        // 副本之后仍可以独立更新
+        copy.update(null, FoodTableTest.item("2024-03-01 12:00", "1", 0f, null));
+
+        assertEquals(17500, rollup.getTotalCents(day(2024, 1, 1), day(2024, 2, 29)));
+        assertEquals(15500, copy.getTotalCents(day(2024, 1, 1), day(2024, 2, 29)));
+        assertEquals(100, copy.getTotalCents(day(2024, 3, 1), day(2024, 3, 1)));
+    }
+
+    @Test
+    public void getSeries_bucketsByDayWeekAndMonth() {
+        SpendingRollup rollup = new SpendingRollup();
+        rollup.rebuild(items);
+
+        SpendingRollup.Series days = rollup.getSeries(SpendingRollup.GRANULARITY_DAY, day(2024, 1, 1), day(2024, 1, 31));
+        assertArrayEquals(new int[]{day(2024, 1, 1), day(2024, 1, 7), day(2024, 1, 8)}, days.startDays);
+        assertArrayEquals(new long[]{1500, 2000, 4000}, days.cents);
+
+        // 周一为一周的第一天，范围包含起止日期所在的整周
+        SpendingRollup.Series weeks = rollup.getSeries(SpendingRollup.GRANULARITY_WEEK, day(2024, 1, 3), day(2024, 2, 20));
+        assertArrayEquals(new int[]{day(2024, 1, 1), day(2024, 1, 8), day(2024, 2, 12)}, weeks.startDays);
+        assertArrayEquals(new long[]{3500, 4000, 8000}, weeks.cents);
+
+        SpendingRollup.Series months = rollup.getSeries(SpendingRollup.GRANULARITY_MONTH, day(2024, 1, 20), day(2024, 2, 1));
+        assertArrayEquals(new int[]{day(2024, 1, 1), day(2024, 2, 1)}, months.startDays);
+        assertArrayEquals(new long[]{7500, 8000}, months.cents);
+    }
+
+    @Test
+    public void update_matchesRebuild() {
+        SpendingRollup incremental = new SpendingRollup();
+        incremental.rebuild(new ArrayList<>());
+        for (FoodItem item : items) {
+            incremental.update(null, item);
+        }
+        // 修改价格和日期，再删除一条
+        FoodItem moved = FoodTableTest.item("2024-03-02 12:00", "15", 0f, null);
+        incremental.update(items.get(2), moved);
+        incremental.update(items.get(0), null);
+
+        List<FoodItem> expected = new ArrayList<>(items);
+        expected.set(2, moved);
+        expected.remove(0);
+        SpendingRollup rebuilt = new SpendingRollup();
+        rebuilt.rebuild(expected);
+
+        for (int granularity = SpendingRollup.GRANULARITY_DAY; granularity <= SpendingRollup.GRANULARITY_MONTH; granularity++) {
+            SpendingRollup.Series a = incremental.getSeries(granularity, day(2023, 1, 1), day(2025, 1, 1));
+            SpendingRollup.Series b = rebuilt.getSeries(granularity, day(2023, 1, 1), day(2025, 1, 1));
+            assertArrayEquals(b.startDays, a.startDays);
+            assertArrayEquals(b.cents, a.cents);
+        }
+        assertEquals(rebuilt.getTotalCents(day(2023, 1, 1), day(2025, 1, 1)),
+                incremental.getTotalCents(day(2023, 1, 1), day(2025, 1, 1)));
+    }
+}
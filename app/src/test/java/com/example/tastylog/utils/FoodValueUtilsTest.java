@@ -0,0 +1,77 @@
+package com.example.tastylog.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+public class FoodValueUtilsTest {
+
+    @Test
+    public void parsePriceCents_handlesCurrencyAndFractions() {
+        assertEquals(1250, FoodValueUtils.parsePriceCents("¥12.5"));
+        assertEquals(1234, FoodValueUtils.parsePriceCents("12.34"));
+        assertEquals(1200, FoodValueUtils.parsePriceCents("12"));
+        assertEquals(1200, FoodValueUtils.parsePriceCents("12."));
+        assertEquals(5, FoodValueUtils.parsePriceCents(".05"));
+    }
+
+    @Test
+    public void parsePriceCents_roundsThirdDecimal() {
+        assertEquals(1235, FoodValueUtils.parsePriceCents("12.345"));
+        assertEquals(1234, FoodValueUtils.parsePriceCents("12.344"));
+        assertEquals(1234, FoodValueUtils.parsePriceCents("12.3449"));
+    }
+
+    @Test
+    public void parsePriceCents_returnsZeroForInvalidInput() {
+        assertEquals(0, FoodValueUtils.parsePriceCents(null));
+        assertEquals(0, FoodValueUtils.parsePriceCents(""));
+        assertEquals(0, FoodValueUtils.parsePriceCents("¥"));
+        assertEquals(0, FoodValueUtils.parsePriceCents("1.2.3"));
+    }
+
+    @Test
+    public void parseEpochDay_matchesCalendar() {
+        assertEquals(0, FoodValueUtils.parseEpochDay("1970-01-01"));
+        assertEquals(epochDayOf(2024, 2, 29), FoodValueUtils.parseEpochDay("2024-02-29 18:30"));
+        assertEquals(epochDayOf(1969, 12, 31), FoodValueUtils.parseEpochDay("1969-12-31"));
+        assertEquals(epochDayOf(2100, 3, 1), FoodValueUtils.parseEpochDay("2100-03-01 00:00:00"));
+    }
+
+    @Test
+    public void parseEpochDay_rejectsMalformedDates() {
+        assertEquals(FoodValueUtils.NO_DATE, FoodValueUtils.parseEpochDay(null));
+        assertEquals(FoodValueUtils.NO_DATE, FoodValueUtils.parseEpochDay("2024/01/01"));
+        assertEquals(FoodValueUtils.NO_DATE, FoodValueUtils.parseEpochDay("2024-13-01"));
+        assertEquals(FoodValueUtils.NO_DATE, FoodValueUtils.parseEpochDay("2024-01"));
+        assertEquals(FoodValueUtils.NO_DATE, FoodValueUtils.parseEpochDay("abcd-01-01"));
+    }
+
+    @Test
+    public void fromEpochDay_roundTripsAcrossCenturies() {
+        for (int epochDay = -800000; epochDay <= 800000; epochDay += 97) {
+            int[] date = FoodValueUtils.fromEpochDay(epochDay);
+            assertEquals(epochDay, FoodValueUtils.toEpochDay(date[0], date[1], date[2]));
+        }
+        assertArrayEquals(new int[]{2000, 2, 29}, FoodValueUtils.fromEpochDay(epochDayOf(2000, 2, 29)));
+        assertArrayEquals(new int[]{1970, 1, 1}, FoodValueUtils.fromEpochDay(0));
+    }
+
+    @Test
+    public void toYearMonth_usesCalendarMonth() {
+        assertEquals(202402, FoodValueUtils.toYearMonth(epochDayOf(2024, 2, 29)));
+        assertEquals(202403, FoodValueUtils.toYearMonth(epochDayOf(2024, 3, 1)));
+    }
+
+    private static int epochDayOf(int year, int month, int day) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month - 1, day);
+        return (int) Math.floorDiv(calendar.getTimeInMillis(), 24L * 60 * 60 * 1000);
+    }
+}
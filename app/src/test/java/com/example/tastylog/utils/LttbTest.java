@@ -0,0 +1,47 @@
+package com.example.tastylog.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LttbTest {
+
+    @Test
+    public void select_returnsAllIndicesWhenUnderThreshold() {
+        float[] values = {1, 2, 3, 4, 5};
+        assertArrayEquals(new int[]{1, 2, 3}, Lttb.select(values, 1, 4, 10));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, Lttb.select(values, 0, 5, 2));
+        assertEquals(0, Lttb.select(values, 3, 3, 10).length);
+    }
+
+    @Test
+    public void select_keepsEndpointsAndIsAscending() {
+        float[] values = new float[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.sin(i / 20.0) * 100;
+        }
+        int[] selected = Lttb.select(values, 100, 900, 50);
+
+        assertEquals(50, selected.length);
+        assertEquals(100, selected[0]);
+        assertEquals(899, selected[selected.length - 1]);
+        for (int i = 1; i < selected.length; i++) {
+            assertTrue(selected[i] > selected[i - 1]);
+        }
+    }
+
+    @Test
+    public void select_keepsIsolatedSpike() {
+        float[] values = new float[500];
+        values[237] = 1000;
+        int[] selected = Lttb.select(values, 0, values.length, 20);
+
+        boolean found = false;
+        for (int index : selected) {
+            found |= index == 237;
+        }
+        assertTrue(found);
+    }
+}
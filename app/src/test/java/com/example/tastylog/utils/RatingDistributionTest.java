@@ -0,0 +1,37 @@
+package com.example.tastylog.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.tastylog.data.FoodStats;
+
+import org.junit.Test;
+
+public class RatingDistributionTest {
+
+    @Test
+    public void build_ordersNonEmptyBucketsFromHighToLow() {
+        int[] histogram = new int[FoodStats.RATING_BUCKETS];
+        // 0档为未评分，不参与分布
+        histogram[0] = 7;
+        histogram[3] = 2;
+        histogram[8] = 5;
+        histogram[10] = 1;
+
+        RatingDistribution distribution = RatingDistribution.build(histogram, new int[]{0xA, 0xB}, 0, 0);
+
+        assertEquals(3, distribution.size());
+        assertArrayEquals(new float[]{5f, 4f, 1.5f}, distribution.ratings, 0f);
+        assertArrayEquals(new int[]{1, 5, 2}, distribution.counts);
+        // 颜色按切片顺序循环使用
+        assertArrayEquals(new int[]{0xA, 0xB, 0xA}, distribution.colors);
+    }
+
+    @Test
+    public void build_isEmptyWithoutRatedRecords() {
+        int[] histogram = new int[FoodStats.RATING_BUCKETS];
+        histogram[0] = 3;
+
+        assertEquals(0, RatingDistribution.build(histogram, new int[]{0xA}, 0, 0).size());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.tastylog.viewmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tastylog.data.FakeAppwrite;
+import com.example.tastylog.data.FoodRepository;
+import com.example.tastylog.data.LocalFoodStore;
+import com.example.tastylog.model.FoodItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * FoodListViewModel与使用内存数据库的FoodRepository一起测试，后台任务由测试逐个执行
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FoodListViewModelTest {
+    private static final String USER = "user";
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final FakeAppwrite appwrite = new FakeAppwrite(USER);
+    private LocalFoodStore store;
+    private FoodRepository repository;
+    private FoodListViewModel viewModel;
+
+    @Before
+    public void setUp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        store = new LocalFoodStore(application, null);
+        FoodItem item = new FoodItem();
+        item.setDocumentId("a");
+        item.setId("a");
+        item.setTitle("a");
+        item.setTime("2024-01-05 12:00");
+        item.setPrice("35");
+        item.setTags(new ArrayList<>());
+        store.upsertAll(USER, Collections.singletonList(item));
+        appwrite.remotePage = store.getFoodItems(USER);
+
+        repository = new FoodRepository(store, appwrite, tasks::add);
+        repository.setCacheTtl(60_000);
+        viewModel = new FoodListViewModel(application, repository);
+        runAll();
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void load_syncsAgainOnlyAfterCacheExpires() {
+        List<Long> versions = new ArrayList<>();
+        viewModel.getDataVersion().observeForever(versions::add);
+
+        viewModel.load();
+        runAll();
+        assertEquals(1, appwrite.fetchCount);
+        assertEquals(1, versions.size());
+
+        // 缓存仍在有效期内，再次load只使用本地数据
+        viewModel.load();
+        runAll();
+        assertEquals(1, appwrite.fetchCount);
+
+        // 有效期缩短为0，缓存已过期，再次load在后台同步
+        repository.setCacheTtl(0);
+        viewModel.load();
+        runAll();
+        assertEquals(2, appwrite.fetchCount);
+
+        // 数据没有变化，加载回调和观察者通知都不会重复发布同一个版本
+        assertEquals(1, versions.size());
+        assertEquals(repository.getDataVersion(), (long) versions.get(0));
+    }
+
+    @Test
+    public void load_publishesEachNewVersionOnce() {
+        List<Long> versions = new ArrayList<>();
+        viewModel.getDataVersion().observeForever(versions::add);
+        viewModel.load();
+        runAll();
+
+        // 云端多了一条记录，同步后观察者通知和加载回调对应同一个新版本
+        FoodItem item = new FoodItem();
+        item.setDocumentId("b");
+        item.setId("b");
+        item.setTitle("b");
+        item.setTime("2024-01-06 12:00");
+        item.setPrice("20");
+        item.setTags(new ArrayList<>());
+        List<FoodItem> remote = new ArrayList<>(appwrite.remotePage);
+        remote.add(0, item);
+        appwrite.remotePage = remote;
+        repository.setCacheTtl(0);
+        viewModel.load();
+        runAll();
+
+        assertEquals(2, versions.size());
+        assertNotEquals(versions.get(0), versions.get(1));
+        assertEquals(repository.getDataVersion(), (long) versions.get(1));
+    }
+
+    private void runAll() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}